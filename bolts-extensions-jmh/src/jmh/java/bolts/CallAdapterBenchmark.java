@@ -0,0 +1,87 @@
+package bolts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+
+/**
+ * Round trips through the Promise and Task call adapters. Responses come from an OkHttp interceptor standing in
+ * for a server, so that only the dispatch and adapter overhead is measured, not the network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CallAdapterBenchmark {
+
+    private static final MediaType TEXT = MediaType.get("text/plain");
+
+    interface Service {
+        @GET("/")
+        Promise<String> getPromise();
+
+        @GET("/")
+        Task<String> getTask();
+    }
+
+    private Service service;
+
+    @Setup
+    public void setUp() {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(chain -> new Response.Builder()
+                        .request(chain.request())
+                        .protocol(Protocol.HTTP_1_1)
+                        .code(200)
+                        .message("OK")
+                        .body(ResponseBody.create(TEXT, "hello"))
+                        .build())
+                .build();
+
+        service = new Retrofit.Builder()
+                .baseUrl("http://localhost/")
+                .client(client)
+                .addConverterFactory(new StringConverterFactory())
+                .addCallAdapterFactory(PromiseCallAdapterFactory.create())
+                .addCallAdapterFactory(TaskCallAdapterFactory.create())
+                .build()
+                .create(Service.class);
+    }
+
+    @Benchmark
+    public String promise() throws InterruptedException {
+        return Promise.await(service.getPromise());
+    }
+
+    @Benchmark
+    public String task() throws InterruptedException {
+        Task<String> task = service.getTask();
+        task.waitForCompletion();
+        return task.getResult();
+    }
+
+    static final class StringConverterFactory extends Converter.Factory {
+        @Override
+        public Converter<ResponseBody, ?> responseBodyConverter(
+                Type type, Annotation[] annotations, Retrofit retrofit) {
+            return type == String.class ? (Converter<ResponseBody, String>) ResponseBody::string : null;
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+package bolts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of {@link Promise#mapParallel} and {@link Promise#reduce} on a CPU-bound transform of 100k items.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParallelMapBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private List<Integer> items;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        items = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            items.add(i);
+        }
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<Long> mapParallel() throws InterruptedException {
+        return Promise.await(Promise.mapParallel(items, ParallelMapBenchmark::work, pool, parallelism));
+    }
+
+    @Benchmark
+    public Long reduce() throws InterruptedException {
+        return Promise.await(Promise.reduce(items, 0L, ParallelMapBenchmark::work, Long::sum, pool, parallelism));
+    }
+
+    private static long work(int value) {
+        long x = value;
+        for (int i = 0; i < 100; i++) {
+            x = x * 6364136223846793005L + 1442695040888963407L;
+        }
+        return x;
+    }
+
+}
@@ -0,0 +1,65 @@
+package bolts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of chaining continuations, on promises that are already resolved (the inline fast path) and on promises
+ * that resolve after the chain has been built.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PromiseChainBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int depth;
+
+    @Benchmark
+    public Integer thenResolved() {
+        Promise<Integer> promise = Promise.resolve(0);
+        for (int i = 0; i < depth; i++) {
+            promise = promise.then(p -> Promise.resolve(p.getResult() + 1));
+        }
+        return promise.getResult();
+    }
+
+    @Benchmark
+    public Integer thenReturnResolved() {
+        Promise<Integer> promise = Promise.resolve(0);
+        for (int i = 0; i < depth; i++) {
+            promise = promise.thenReturn(p -> p.getResult() + 1);
+        }
+        return promise.getResult();
+    }
+
+    @Benchmark
+    public Integer thenReturnPending() {
+        TaskCompletionSource<Integer> tcs = new TaskCompletionSource<>();
+        Promise<Integer> promise = Promise.of(tcs.getTask());
+        for (int i = 0; i < depth; i++) {
+            promise = promise.thenReturn(p -> p.getResult() + 1);
+        }
+        tcs.setResult(0);
+        return promise.getResult();
+    }
+
+    @Benchmark
+    public Integer thenReturnTrampoline() {
+        TaskCompletionSource<Integer> tcs = new TaskCompletionSource<>();
+        Promise<Integer> promise = Promise.of(tcs.getTask());
+        for (int i = 0; i < depth; i++) {
+            promise = promise.thenReturn(p -> p.getResult() + 1, Promise.TRAMPOLINE_EXECUTOR);
+        }
+        tcs.setResult(0);
+        return promise.getResult();
+    }
+
+}
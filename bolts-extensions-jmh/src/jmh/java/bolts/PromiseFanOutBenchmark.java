@@ -0,0 +1,84 @@
+package bolts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link Promise#all(List)} and {@link Promise#any(List)} over many inputs, either already resolved or
+ * resolved one by one after the combinator has subscribed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PromiseFanOutBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private List<Promise<Integer>> resolved;
+
+    @Setup
+    public void setUp() {
+        resolved = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            resolved.add(Promise.resolve(i));
+        }
+    }
+
+    @Benchmark
+    public Object allResolved() {
+        return Promise.all(resolved).getResult();
+    }
+
+    @Benchmark
+    public Object allPending() {
+        List<TaskCompletionSource<Integer>> sources = pending(size);
+        Promise<List<Promise<Integer>>> all = Promise.all(promisesOf(sources));
+        for (int i = 0; i < size; i++) {
+            sources.get(i).setResult(i);
+        }
+        return all.getResult();
+    }
+
+    @Benchmark
+    public Object anyResolved() {
+        return Promise.any(resolved).getResult();
+    }
+
+    @Benchmark
+    public Object anyPending() {
+        List<TaskCompletionSource<Integer>> sources = pending(size);
+        Promise<Promise<Integer>> any = Promise.any(promisesOf(sources));
+        for (int i = 0; i < size; i++) {
+            sources.get(i).setResult(i);
+        }
+        return any.getResult();
+    }
+
+    private static List<TaskCompletionSource<Integer>> pending(int size) {
+        List<TaskCompletionSource<Integer>> sources = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sources.add(new TaskCompletionSource<>());
+        }
+        return sources;
+    }
+
+    private static List<Promise<Integer>> promisesOf(List<TaskCompletionSource<Integer>> sources) {
+        List<Promise<Integer>> promises = new ArrayList<>(sources.size());
+        for (TaskCompletionSource<Integer> source : sources) {
+            promises.add(Promise.of(source.getTask()));
+        }
+        return promises;
+    }
+
+}
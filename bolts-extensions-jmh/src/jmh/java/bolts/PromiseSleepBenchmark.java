@@ -0,0 +1,42 @@
+package bolts;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link Promise#sleep(long, CancellationToken)} timers on the shared scheduler. Most timers in practice
+ * are timeouts that get cancelled long before they fire.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PromiseSleepBenchmark {
+
+    @Benchmark
+    @Threads(4)
+    public boolean sleepAndCancel() {
+        CancellationTokenSource cts = new CancellationTokenSource();
+        Promise<Void> sleep = Promise.sleep(60000, cts.getToken());
+        cts.cancel();
+        return sleep.isCancelled();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean timeoutResolved() {
+        return Promise.resolve(1).timeout(60000).isSuccessful();
+    }
+
+    @Benchmark
+    public Void sleepZero() throws InterruptedException {
+        return Promise.await(Promise.<Void>sleep(0));
+    }
+
+}
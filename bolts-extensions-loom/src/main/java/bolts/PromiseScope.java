@@ -0,0 +1,180 @@
+package bolts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * A structured concurrency scope that owns the promises forked in it.
+ *
+ * Children share the scope's cancellation token. The first child to fail cancels all others, and closing the
+ * scope cancels whatever is still running and waits for its virtual threads to exit.
+ *
+ * <pre>{@code
+ * try (PromiseScope scope = PromiseScope.open()) {
+ *     Promise<User> user = scope.fork(() -> loadUser(id));
+ *     Promise<List<Order>> orders = scope.fork(token -> service.getOrders(id, token));
+ *     scope.join();
+ *     return new Profile(user.getResult(), orders.getResult());
+ * }
+ * }</pre>
+ */
+public final class PromiseScope implements AutoCloseable {
+
+    private final CancellationTokenSource cts = new CancellationTokenSource();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Task<?>> children = new ArrayList<>();
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    private boolean closed;
+
+    private PromiseScope() {
+    }
+
+    public static PromiseScope open() {
+        return new PromiseScope();
+    }
+
+    public CancellationToken getToken() {
+        return cts.getToken();
+    }
+
+    /**
+     * Runs the callable on a new virtual thread. The thread is interrupted if the scope is cancelled.
+     */
+    public <TResult> Promise<TResult> fork(final Callable<TResult> callable) {
+        final TaskCompletionSource<TResult> tcs = new TaskCompletionSource<>();
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+
+        synchronized (this) {
+            ensureOpen();
+            executor.execute(() -> {
+                // Published before checking the token, so that a concurrent cancellation either sees the thread or
+                // is seen by it.
+                thread.set(Thread.currentThread());
+                try {
+                    cts.getToken().throwIfCancellationRequested();
+                    tcs.trySetResult(callable.call());
+                } catch (CancellationException e) {
+                    tcs.trySetCancelled();
+                } catch (Throwable t) {
+                    if (cts.isCancellationRequested()) {
+                        tcs.trySetCancelled();
+                    } else {
+                        tcs.trySetError(t instanceof Exception ? (Exception) t : new ExecutionException(t));
+                    }
+                }
+            });
+        }
+
+        // The thread is interrupted rather than its future cancelled, so that closing the scope still waits for it.
+        final CancellationTokens.Registration registration = CancellationTokens.register(cts.getToken(), () -> {
+            tcs.trySetCancelled();
+            Thread running = thread.get();
+            if (running != null) {
+                running.interrupt();
+            }
+        });
+        tcs.getTask().continueWith(task -> {
+            registration.release();
+            return null;
+        });
+
+        return track(tcs.getTask());
+    }
+
+    /**
+     * Starts an asynchronous child, such as a Retrofit call, with the scope's cancellation token.
+     */
+    public <TResult> Promise<TResult> fork(Function<CancellationToken, Promise<TResult>> child) {
+        synchronized (this) {
+            ensureOpen();
+        }
+
+        return track(child.apply(cts.getToken()).getTask());
+    }
+
+    /**
+     * Completes once every child forked so far has completed. Rejects with the first failure, if any.
+     */
+    public Promise<Void> joinAsync() {
+        final List<Task<?>> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(children);
+        }
+
+        return Promise.of(Task.whenAll(snapshot).continueWithTask(task -> {
+            Exception error = failure.get();
+            if (error != null) {
+                return Task.forError(error);
+            }
+
+            synchronized (this) {
+                if (children.size() > snapshot.size()) {
+                    return joinAsync().getTask();
+                }
+            }
+
+            return task.isCancelled() ? Task.cancelled() : Task.forResult(null);
+        }));
+    }
+
+    /**
+     * Blocks until every child has completed. Rethrows the first failure, or throws a {@link CancellationException}
+     * if the scope was cancelled.
+     */
+    public void join() throws Exception {
+        Promise<Void> joined = joinAsync();
+        Promise.await(joined);
+
+        if (joined.isFaulted()) {
+            throw joined.getError();
+        } else if (joined.isCancelled()) {
+            throw new CancellationException();
+        }
+    }
+
+    public void cancel() {
+        cts.cancel();
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+
+        cts.cancel();
+        executor.shutdownNow();
+        executor.close();
+    }
+
+    private <TResult> Promise<TResult> track(Task<TResult> task) {
+        synchronized (this) {
+            children.add(task);
+        }
+
+        task.continueWith(t -> {
+            if (t.isFaulted() && failure.compareAndSet(null, t.getError())) {
+                cts.cancel();
+            }
+            return null;
+        });
+
+        return Promise.of(task);
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Scope is closed");
+        }
+    }
+}
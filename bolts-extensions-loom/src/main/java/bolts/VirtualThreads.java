@@ -0,0 +1,31 @@
+package bolts;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Promise support for virtual threads.
+ *
+ * Blocking calls such as {@link Promise#await(Promise)} are cheap on a virtual thread, so blocking code can be
+ * moved off Bolts' fixed background pool without tying up platform threads.
+ */
+public final class VirtualThreads {
+
+    /**
+     * Starts a new virtual thread for every task. Can be passed to {@code then()}, {@code thenReturn()},
+     * {@code always()}, {@code alwaysReturn()} and {@code except()} like the executors in {@link Promise}.
+     */
+    public static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private VirtualThreads() {
+    }
+
+    public static <TResult> Promise<TResult> call(Callable<TResult> callable) {
+        return call(callable, null);
+    }
+
+    public static <TResult> Promise<TResult> call(Callable<TResult> callable, CancellationToken ct) {
+        return Promise.of(Task.call(callable, EXECUTOR, ct));
+    }
+}
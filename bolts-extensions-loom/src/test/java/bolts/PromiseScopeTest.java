@@ -0,0 +1,110 @@
+package bolts;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PromiseScopeTest {
+
+    @Test
+    public void testVirtualThreads() throws InterruptedException {
+        Promise<Boolean> promise = VirtualThreads.call(() -> Thread.currentThread().isVirtual());
+        assertTrue(Promise.await(promise));
+
+        Promise<Boolean> chained = Promise.resolve(1).thenReturn(p -> Thread.currentThread().isVirtual(),
+                VirtualThreads.EXECUTOR);
+        assertTrue(Promise.await(chained));
+    }
+
+    @Test
+    public void testJoin() throws Exception {
+        try (PromiseScope scope = PromiseScope.open()) {
+            Promise<Integer> a = scope.fork(() -> {
+                Thread.sleep(50);
+                return 1;
+            });
+            Promise<Integer> b = scope.fork(token -> Promise.sleep(20, token).thenReturn(p -> 2));
+
+            scope.join();
+            assertEquals(Integer.valueOf(1), a.getResult());
+            assertEquals(Integer.valueOf(2), b.getResult());
+        }
+    }
+
+    @Test
+    public void testErrorFailsChild() throws Exception {
+        AssertionError error = new AssertionError();
+        try (PromiseScope scope = PromiseScope.open()) {
+            Promise<Integer> child = scope.fork(() -> {
+                throw error;
+            });
+
+            try {
+                scope.join();
+                fail();
+            } catch (ExecutionException e) {
+                assertSame(error, e.getCause());
+            }
+            assertTrue(child.isFaulted());
+        }
+    }
+
+    @Test
+    public void testFailureCancelsSiblings() throws InterruptedException {
+        ArithmeticException error = new ArithmeticException();
+        Promise<Integer> slow;
+        Promise<Integer> async;
+
+        try (PromiseScope scope = PromiseScope.open()) {
+            slow = scope.fork(() -> {
+                Thread.sleep(10000);
+                return 1;
+            });
+            async = scope.fork(token -> Promise.sleep(10000, token));
+            scope.fork(() -> {
+                throw error;
+            });
+
+            try {
+                scope.join();
+                fail();
+            } catch (Exception e) {
+                assertSame(error, e);
+            }
+        }
+
+        assertTrue(slow.isCancelled());
+        assertTrue(async.isCancelled());
+    }
+
+    @Test
+    public void testCloseInterruptsChildren() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Promise<Integer> child;
+
+        try (PromiseScope scope = PromiseScope.open()) {
+            child = scope.fork(() -> {
+                started.countDown();
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+                return 1;
+            });
+            started.await();
+        }
+
+        // Closing waits for the child's thread to exit:
+        assertEquals(0, interrupted.getCount());
+        assertTrue(child.isCancelled());
+    }
+}
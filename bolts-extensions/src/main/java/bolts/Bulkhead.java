@@ -0,0 +1,51 @@
+package bolts;
+
+/**
+ * Limits the number of concurrent calls. Waiting callers are granted permits as running calls release theirs.
+ *
+ * @see BulkheadPolicy
+ */
+final class Bulkhead extends Permits {
+
+    private final int maxConcurrent;
+
+    // Guarded by this:
+    private int running;
+
+    Bulkhead(BulkheadPolicy policy) {
+        super(policy.getMaxQueue());
+        if (policy.getMaxConcurrent() < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be positive");
+        }
+
+        this.maxConcurrent = policy.getMaxConcurrent();
+    }
+
+    @Override
+    boolean tryTake() {
+        if (running >= maxConcurrent) {
+            return false;
+        }
+
+        running++;
+        return true;
+    }
+
+    @Override
+    void giveBack() {
+        release();
+    }
+
+    void release() {
+        synchronized (this) {
+            running--;
+        }
+        drain();
+    }
+
+    @Override
+    String rejectionMessage() {
+        return "Bulkhead is full";
+    }
+
+}
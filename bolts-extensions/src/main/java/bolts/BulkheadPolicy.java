@@ -0,0 +1,30 @@
+package bolts;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Describes the bulkhead of a service method: at most {@code maxConcurrent} calls are in flight at a time.
+ * Further calls wait in a queue of at most {@code maxQueue} calls, and are rejected with a
+ * {@link java.util.concurrent.RejectedExecutionException} when the queue is full. Waiting never blocks the calling
+ * thread.
+ *
+ * @see CallPolicy.Bulkhead
+ */
+@Getter
+@Builder(toBuilder = true)
+public final class BulkheadPolicy {
+
+    private final int maxConcurrent;
+
+    @Builder.Default
+    private final int maxQueue = 100;
+
+    static BulkheadPolicy of(CallPolicy.Bulkhead annotation) {
+        return builder()
+                .maxConcurrent(annotation.maxConcurrent())
+                .maxQueue(annotation.maxQueue())
+                .build();
+    }
+
+}
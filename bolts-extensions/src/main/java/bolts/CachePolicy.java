@@ -0,0 +1,57 @@
+package bolts;
+
+import java.util.function.ToIntFunction;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Describes how successful responses of a service method are cached.
+ *
+ * Responses are fresh for {@code ttlMillis}. Stale responses are still served for another
+ * {@code staleWhileRevalidateMillis}, while a single request refreshes them in the background.
+ * The cache is bounded by {@code maximumSize} entries or, if a {@code weigher} is given, by {@code maximumWeight},
+ * which must then be set as well.
+ *
+ * @see CallPolicy.Cache
+ */
+@Getter
+@Builder(toBuilder = true)
+public final class CachePolicy {
+
+    private final long ttlMillis;
+
+    private final long staleWhileRevalidateMillis;
+
+    @Builder.Default
+    private final long maximumSize = 100;
+
+    private final long maximumWeight;
+
+    /**
+     * Computes the weight of a response body, used together with {@code maximumWeight}.
+     */
+    private final ToIntFunction<Object> weigher;
+
+    private CachePolicy(long ttlMillis, long staleWhileRevalidateMillis, long maximumSize, long maximumWeight,
+                        ToIntFunction<Object> weigher) {
+        if (weigher != null && maximumWeight <= 0) {
+            throw new IllegalArgumentException("maximumWeight must be positive when a weigher is given");
+        }
+
+        this.ttlMillis = ttlMillis;
+        this.staleWhileRevalidateMillis = staleWhileRevalidateMillis;
+        this.maximumSize = maximumSize;
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+    }
+
+    static CachePolicy of(CallPolicy.Cache annotation) {
+        return builder()
+                .ttlMillis(annotation.ttlMillis())
+                .staleWhileRevalidateMillis(annotation.staleWhileRevalidateMillis())
+                .maximumSize(annotation.maximumSize())
+                .build();
+    }
+
+}
@@ -0,0 +1,60 @@
+package bolts;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Options applied to every service method adapted by {@link PromiseCallAdapterFactory} or
+ * {@link TaskCallAdapterFactory}. Individual methods can enable policies using {@link CallPolicy} annotations.
+ */
+@Getter
+@Builder(toBuilder = true)
+public final class CallAdapterOptions {
+
+    private static final CallAdapterOptions DEFAULTS = builder().build();
+
+    /**
+     * Coalesces concurrent identical requests. See {@link CallPolicy.SingleFlight}.
+     */
+    private final boolean singleFlight;
+
+    /**
+     * Caches successful responses of GET requests. See {@link CallPolicy.Cache}.
+     */
+    private final CachePolicy cache;
+
+    /**
+     * Hedges slow GET and HEAD requests. See {@link CallPolicy.Hedge}.
+     */
+    private final HedgePolicy hedge;
+
+    /**
+     * Retries failed idempotent requests. See {@link CallPolicy.Retry}.
+     */
+    private final RetryPolicy retry;
+
+    /**
+     * Gives every service method its own circuit breaker. See {@link CallPolicy.CircuitBreaker}.
+     */
+    private final CircuitBreakerPolicy circuitBreaker;
+
+    /**
+     * Gives every service method its own rate limit. See {@link CallPolicy.RateLimit}.
+     */
+    private final RateLimitPolicy rateLimit;
+
+    /**
+     * Gives every service method its own bulkhead. See {@link CallPolicy.Bulkhead}.
+     */
+    private final BulkheadPolicy bulkhead;
+
+    /**
+     * Records latency, in-flight calls and outcomes of every service method.
+     */
+    private final CallMetrics metrics;
+
+    public static CallAdapterOptions defaults() {
+        return DEFAULTS;
+    }
+
+}
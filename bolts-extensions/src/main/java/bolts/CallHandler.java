@@ -0,0 +1,12 @@
+package bolts;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * Executes a Retrofit call as a Task. Call policies (such as single-flight) are implemented as handlers that
+ * wrap the next handler in the chain, ending with {@link CallTasks#enqueue(Call, CancellationToken)}.
+ */
+interface CallHandler<R> {
+    Task<Response<R>> handle(Call<R> call, CancellationToken ct);
+}
@@ -0,0 +1,97 @@
+package bolts;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import okhttp3.ResponseBody;
+
+/**
+ * Builds the chain of {@link CallHandler}s for a service method from the factory options and the
+ * {@link CallPolicy} annotations present on the method.
+ */
+final class CallHandlers {
+
+    private CallHandlers() {
+    }
+
+    static <R> CallHandler<R> create(CallAdapterOptions options, Annotation[] annotations, Type responseType) {
+        CallHandler<R> handler = CallTasks::enqueue;
+
+        RateLimitPolicy rateLimit = rateLimitPolicyOf(options, annotations);
+        BulkheadPolicy bulkhead = bulkheadPolicyOf(options, annotations);
+        if (rateLimit != null || bulkhead != null) {
+            handler = new Limiting<>(handler, rateLimit, bulkhead);
+        }
+
+        CallPolicy.Hedge hedge = find(annotations, CallPolicy.Hedge.class);
+        if (hedge != null) {
+            handler = new Hedging<>(handler, HedgePolicy.of(hedge), false);
+        } else if (options.getHedge() != null) {
+            // Only idempotent requests are hedged unless a method opts in explicitly.
+            handler = new Hedging<>(handler, options.getHedge(), true);
+        }
+
+        CallPolicy.CircuitBreaker circuitBreaker = find(annotations, CallPolicy.CircuitBreaker.class);
+        if (circuitBreaker != null) {
+            handler = new CircuitBreaking<>(handler, CircuitBreakerPolicy.of(circuitBreaker));
+        } else if (options.getCircuitBreaker() != null) {
+            handler = new CircuitBreaking<>(handler, options.getCircuitBreaker());
+        }
+
+        CallPolicy.Retry retry = find(annotations, CallPolicy.Retry.class);
+        if (retry != null) {
+            handler = new Retrying<>(handler, RetryPolicy.of(retry), false);
+        } else if (options.getRetry() != null) {
+            // Only idempotent requests are retried unless a method opts in explicitly.
+            handler = new Retrying<>(handler, options.getRetry(), true);
+        }
+
+        // Raw bodies can only be consumed once, so they can never be shared between callers.
+        boolean shareable = responseType != ResponseBody.class;
+
+        if (shareable && (options.isSingleFlight() || has(annotations, CallPolicy.SingleFlight.class))) {
+            handler = new SingleFlight<>(handler);
+        }
+
+        CachePolicy cachePolicy = cachePolicyOf(options, annotations);
+        if (shareable && cachePolicy != null) {
+            handler = new ResponseCache<>(handler, cachePolicy);
+        }
+
+        if (options.getMetrics() != null) {
+            handler = new Metering<>(handler, options.getMetrics());
+        }
+
+        return handler;
+    }
+
+    private static CachePolicy cachePolicyOf(CallAdapterOptions options, Annotation[] annotations) {
+        CallPolicy.Cache cache = find(annotations, CallPolicy.Cache.class);
+        return cache != null ? CachePolicy.of(cache) : options.getCache();
+    }
+
+    private static RateLimitPolicy rateLimitPolicyOf(CallAdapterOptions options, Annotation[] annotations) {
+        CallPolicy.RateLimit rateLimit = find(annotations, CallPolicy.RateLimit.class);
+        return rateLimit != null ? RateLimitPolicy.of(rateLimit) : options.getRateLimit();
+    }
+
+    private static BulkheadPolicy bulkheadPolicyOf(CallAdapterOptions options, Annotation[] annotations) {
+        CallPolicy.Bulkhead bulkhead = find(annotations, CallPolicy.Bulkhead.class);
+        return bulkhead != null ? BulkheadPolicy.of(bulkhead) : options.getBulkhead();
+    }
+
+    private static boolean has(Annotation[] annotations, Class<? extends Annotation> annotationClass) {
+        return find(annotations, annotationClass) != null;
+    }
+
+    static <A extends Annotation> A find(Annotation[] annotations, Class<A> annotationClass) {
+        for (Annotation annotation : annotations) {
+            if (annotationClass.isInstance(annotation)) {
+                return annotationClass.cast(annotation);
+            }
+        }
+
+        return null;
+    }
+
+}
@@ -0,0 +1,40 @@
+package bolts;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Collects {@link MethodMetrics} for every service method adapted with it, keyed by
+ * {@code "Service.method"}. Enable it by passing it to {@link CallAdapterOptions}; the same instance can be
+ * shared by several factories.
+ */
+public final class CallMetrics {
+
+    private final ConcurrentMap<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+    private CallMetrics() {
+    }
+
+    public static CallMetrics create() {
+        return new CallMetrics();
+    }
+
+    /**
+     * Returns the metrics of the given method, or null if it has not been called yet.
+     */
+    public MethodMetrics get(String name) {
+        return methods.get(name);
+    }
+
+    public Map<String, MethodMetrics> getMethods() {
+        return Collections.unmodifiableMap(methods);
+    }
+
+    MethodMetrics forMethod(String name) {
+        MethodMetrics metrics = methods.get(name);
+        return metrics != null ? metrics : methods.computeIfAbsent(name, MethodMetrics::new);
+    }
+
+}
@@ -0,0 +1,141 @@
+package bolts;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotations that enable call policies on individual service methods adapted by
+ * {@link PromiseCallAdapterFactory} and {@link TaskCallAdapterFactory}.
+ *
+ * Policies can also be enabled for every service method using {@link CallAdapterOptions}.
+ */
+public final class CallPolicy {
+
+    private CallPolicy() {
+    }
+
+    /**
+     * Coalesces concurrent calls of the annotated method that have the same HTTP method, URL and headers into
+     * a single in-flight request, whose result is shared by all callers. Requests with a body are never
+     * coalesced. Cancelling one caller only cancels the shared request once every caller has cancelled.
+     */
+    @Documented
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface SingleFlight {
+    }
+
+    /**
+     * Caches successful responses of the annotated method's GET requests, keyed by URL and headers.
+     *
+     * @see CachePolicy
+     */
+    @Documented
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Cache {
+        long ttlMillis();
+
+        long staleWhileRevalidateMillis() default 0;
+
+        long maximumSize() default 100;
+    }
+
+    /**
+     * Sends a copy of the call if no successful response has arrived within {@code delayMillis}, up to
+     * {@code maxHedges} times. The first successful response wins and the other calls are cancelled.
+     * Only annotate idempotent methods, as the server may receive the same request more than once.
+     *
+     * @see HedgePolicy
+     */
+    @Documented
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Hedge {
+        long delayMillis();
+
+        int maxHedges() default 1;
+    }
+
+    /**
+     * Retries failed calls of the annotated method with exponential backoff and full jitter. Only errors that
+     * are (or are caused by) one of the {@code retryOn} classes are retried; unsuccessful HTTP responses are
+     * treated as {@link retrofit2.HttpException}s. Use a {@link RetryPolicy} in {@link CallAdapterOptions} to
+     * share a {@link RetryBudget} between methods.
+     *
+     * @see RetryPolicy
+     */
+    @Documented
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Retry {
+        int maxAttempts() default 3;
+
+        long initialDelayMillis() default 100;
+
+        long maxDelayMillis() default 10000;
+
+        double multiplier() default 2;
+
+        Class<? extends Exception>[] retryOn() default {java.io.IOException.class};
+    }
+
+    /**
+     * Rejects calls of the annotated method immediately with a {@link CircuitBreakerOpenException} while its
+     * backend is failing or slow. Network errors and server errors (5xx) count as failures.
+     *
+     * @see CircuitBreakerPolicy
+     */
+    @Documented
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface CircuitBreaker {
+        double failureRateThreshold() default 0.5;
+
+        double slowCallRateThreshold() default 1.0;
+
+        long slowCallDurationMillis() default 60000;
+
+        int windowSize() default 100;
+
+        int minimumCalls() default 20;
+
+        long openDurationMillis() default 30000;
+
+        int halfOpenCalls() default 5;
+    }
+
+    /**
+     * Limits the rate at which calls of the annotated method are sent, without blocking callers.
+     *
+     * @see RateLimitPolicy
+     */
+    @Documented
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface RateLimit {
+        double permitsPerSecond();
+
+        int burst() default 1;
+
+        int maxQueue() default 100;
+    }
+
+    /**
+     * Limits the number of concurrent calls of the annotated method, without blocking callers.
+     *
+     * @see BulkheadPolicy
+     */
+    @Documented
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Bulkhead {
+        int maxConcurrent();
+
+        int maxQueue() default 100;
+    }
+
+}
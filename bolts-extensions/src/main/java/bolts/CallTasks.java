@@ -0,0 +1,97 @@
+package bolts;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+/**
+ * Enqueues Retrofit calls and exposes their outcome as a Task. Shared by the Promise and Task call adapters.
+ *
+ * A {@link CancellationToken} attached to the request (using a {@code @Tag CancellationToken} service method
+ * parameter) cancels the underlying call, which releases its connection immediately.
+ */
+final class CallTasks {
+
+    private CallTasks() {
+    }
+
+    static <R> Task<Response<R>> enqueue(final Call<R> call, final CancellationToken ct) {
+        if (ct != null && ct.isCancellationRequested()) {
+            return Task.cancelled();
+        }
+
+        final TaskCompletionSource<Response<R>> tcs = new TaskCompletionSource<>();
+        final CancellationTokens.Registration registration = CancellationTokens.register(ct, () -> {
+            call.cancel();
+            tcs.trySetCancelled();
+        });
+
+        call.enqueue(new Callback<R>() {
+            @Override
+            public void onResponse(Call<R> call, Response<R> response) {
+                unregister(registration);
+                if (!tcs.trySetResult(response)) {
+                    // Nobody is waiting for this response anymore.
+                    discard(response);
+                }
+            }
+
+            @Override
+            public void onFailure(Call<R> call, Throwable t) {
+                unregister(registration);
+                if (call.isCanceled()) {
+                    tcs.trySetCancelled();
+                } else {
+                    tcs.trySetError(new Exception(t));
+                }
+            }
+        });
+
+        return tcs.getTask();
+    }
+
+    static <R> Task<R> body(Task<Response<R>> task) {
+        return task.onSuccess(t -> {
+            Response<R> response = t.getResult();
+            if (!response.isSuccessful()) {
+                throw new HttpException(response);
+            }
+
+            return response.body();
+        });
+    }
+
+    static CancellationToken tokenOf(Call<?> call) {
+        try {
+            return call.request().tag(CancellationToken.class);
+        } catch (RuntimeException e) {
+            // The request could not be created; enqueue() reports the failure.
+            return null;
+        }
+    }
+
+    static void discard(Response<?> response) {
+        closeQuietly(response.body());
+        closeQuietly(response.errorBody());
+    }
+
+    private static void closeQuietly(Object body) {
+        if (body instanceof Closeable) {
+            try {
+                ((Closeable) body).close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static void unregister(CancellationTokens.Registration registration) {
+        if (registration != null) {
+            registration.release();
+        }
+    }
+
+}
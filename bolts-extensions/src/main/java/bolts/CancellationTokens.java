@@ -0,0 +1,122 @@
+package bolts;
+
+import com.google.common.collect.MapMaker;
+
+import java.lang.reflect.Field;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registers cancellation actions that can be released safely at any time.
+ *
+ * Closing a {@link CancellationTokenRegistration} while its source is cancelling makes
+ * {@link CancellationTokenSource#cancel()} throw, which skips the remaining registrations. Instead, every token
+ * source gets a single Bolts registration that is never closed, and the actions registered here are kept in a set next
+ * to it. Releasing an action only removes it from that set.
+ *
+ * Bolts hands out a new token object on every {@link CancellationTokenSource#getToken()} call, so actions are
+ * grouped by the token's source where it can be read, and by the token itself otherwise.
+ */
+final class CancellationTokens {
+
+    private static final ConcurrentMap<Object, Listeners> LISTENERS = new MapMaker().weakKeys().makeMap();
+    private static final Field TOKEN_SOURCE = tokenSourceField();
+
+    private CancellationTokens() {
+    }
+
+    /**
+     * Runs the given action once the token is cancelled (or right away if it already is), unless the returned
+     * registration is released first. Returns null if the token is null.
+     */
+    static Registration register(CancellationToken ct, Runnable action) {
+        if (ct == null) {
+            return null;
+        }
+
+        Object key = keyOf(ct);
+        Listeners listeners = LISTENERS.get(key);
+        if (listeners == null) {
+            Listeners created = new Listeners();
+            listeners = LISTENERS.putIfAbsent(key, created);
+            if (listeners == null) {
+                listeners = created;
+                ct.register(created);
+            }
+        }
+
+        Registration registration = new Registration(listeners, action);
+        listeners.add(registration);
+        return registration;
+    }
+
+    private static Object keyOf(CancellationToken ct) {
+        if (TOKEN_SOURCE != null) {
+            try {
+                return TOKEN_SOURCE.get(ct);
+            } catch (IllegalAccessException ignored) {
+            }
+        }
+        return ct;
+    }
+
+    private static Field tokenSourceField() {
+        try {
+            Field field = CancellationToken.class.getDeclaredField("tokenSource");
+            field.setAccessible(true);
+            return field;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    static final class Registration {
+        private final Listeners listeners;
+        private final Runnable action;
+
+        Registration(Listeners listeners, Runnable action) {
+            this.listeners = listeners;
+            this.action = action;
+        }
+
+        /**
+         * Removes the action, unless it has already run. Safe to call more than once, and while the token is
+         * being cancelled.
+         */
+        void release() {
+            listeners.remove(this);
+        }
+    }
+
+    /**
+     * The actions registered with one token source. Holds no reference to the source or its tokens, so that they
+     * can be collected.
+     */
+    private static final class Listeners implements Runnable {
+        private final Set<Registration> registrations = ConcurrentHashMap.newKeySet();
+        private volatile boolean cancelled;
+
+        void add(Registration registration) {
+            registrations.add(registration);
+            if (cancelled && registrations.remove(registration)) {
+                registration.action.run();
+            }
+        }
+
+        void remove(Registration registration) {
+            registrations.remove(registration);
+        }
+
+        @Override
+        public void run() {
+            cancelled = true;
+            for (Registration registration : registrations) {
+                if (registrations.remove(registration)) {
+                    registration.action.run();
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,209 @@
+package bolts;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free circuit breaker state. Outcomes are recorded in a ring buffer of atomic slots, with running counters
+ * that are adjusted as slots are overwritten, so recording a call never blocks other callers. Every time the
+ * breaker closes, it starts over with a new buffer that belongs to the new state.
+ *
+ * @see CircuitBreakerPolicy
+ */
+final class CircuitBreaker {
+
+    enum Status {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    // Ring buffer slot values; slow calls have SLOW added to their outcome.
+    private static final int EMPTY = 0;
+    private static final int SUCCESS = 1;
+    private static final int FAILURE = 2;
+    private static final int SLOW = 4;
+
+    /**
+     * Returned by {@link #tryAcquire()} when a call is rejected.
+     */
+    static final long REJECTED = -1;
+
+    private final CircuitBreakerPolicy policy;
+    private final int halfOpenCalls;
+    private final AtomicReference<State> state;
+
+    CircuitBreaker(CircuitBreakerPolicy policy) {
+        this.policy = policy;
+        this.halfOpenCalls = Math.max(1, policy.getHalfOpenCalls());
+        this.state = new AtomicReference<>(new State(Status.CLOSED, 0, 0, 0, 0, new Window(policy.getWindowSize())));
+    }
+
+    Status getStatus() {
+        return state.get().status;
+    }
+
+    /**
+     * Returns a permit for a call to proceed, or {@link #REJECTED}. Every permit must be passed back to exactly
+     * one call to {@link #onSuccess(long, long)}, {@link #onFailure(long, long)} or {@link #onIgnored(long)}.
+     *
+     * A permit is the generation of the state it was granted in, so that outcomes of calls let through before
+     * the last transition are ignored.
+     */
+    long tryAcquire() {
+        while (true) {
+            State current = state.get();
+            State next;
+            switch (current.status) {
+                case CLOSED:
+                    return current.generation;
+                case OPEN:
+                    if (now() - current.since < policy.getOpenDurationMillis()) {
+                        return REJECTED;
+                    }
+                    next = next(current, Status.HALF_OPEN).withPermits(halfOpenCalls - 1);
+                    break;
+                default:
+                    if (current.permits <= 0) {
+                        return REJECTED;
+                    }
+                    next = current.withPermits(current.permits - 1);
+                    break;
+            }
+
+            if (state.compareAndSet(current, next)) {
+                return next.generation;
+            }
+        }
+    }
+
+    void onSuccess(long permit, long durationMillis) {
+        record(permit, durationMillis, false);
+    }
+
+    void onFailure(long permit, long durationMillis) {
+        record(permit, durationMillis, true);
+    }
+
+    void onIgnored(long permit) {
+        State current;
+        do {
+            current = state.get();
+            if (current.generation != permit || current.status != Status.HALF_OPEN) {
+                return;
+            }
+        } while (!state.compareAndSet(current, current.withPermits(current.permits + 1)));
+    }
+
+    private void record(long permit, long durationMillis, boolean failed) {
+        boolean slow = durationMillis >= policy.getSlowCallDurationMillis();
+        State current = state.get();
+        if (current.generation != permit) {
+            return;
+        }
+
+        if (current.status == Status.HALF_OPEN) {
+            if (failed || slow) {
+                transition(current, Status.OPEN);
+                return;
+            }
+
+            while (current.generation == permit && current.status == Status.HALF_OPEN) {
+                State next = current.successes + 1 >= halfOpenCalls
+                        ? next(current, Status.CLOSED)
+                        : current.withSuccesses(current.successes + 1);
+                if (state.compareAndSet(current, next)) {
+                    return;
+                }
+                current = state.get();
+            }
+            return;
+        }
+
+        if (current.status != Status.CLOSED) {
+            return;
+        }
+
+        Window window = current.window;
+        int outcome = (failed ? FAILURE : SUCCESS) + (slow ? SLOW : 0);
+        int index = (int) (window.cursor.getAndIncrement() % window.outcomes.length());
+        int previous = window.outcomes.getAndSet(index, outcome);
+
+        int total = previous == EMPTY ? window.recorded.incrementAndGet() : window.recorded.get();
+        int failedCalls = adjust(window.failures, previous, outcome, FAILURE);
+        int slowedCalls = adjust(window.slowCalls, previous, outcome, SLOW);
+
+        if (total >= policy.getMinimumCalls()
+                && (failedCalls >= policy.getFailureRateThreshold() * total
+                || slowedCalls >= policy.getSlowCallRateThreshold() * total)) {
+            transition(current, Status.OPEN);
+        }
+    }
+
+    private static int adjust(AtomicInteger counter, int previous, int outcome, int flag) {
+        int delta = ((outcome & flag) != 0 ? 1 : 0) - ((previous & flag) != 0 ? 1 : 0);
+        return delta == 0 ? counter.get() : counter.addAndGet(delta);
+    }
+
+    private void transition(State from, Status to) {
+        state.compareAndSet(from, next(from, to));
+    }
+
+    /**
+     * Returns the state of the next generation. A closed breaker gets an empty window, so that outcomes recorded
+     * in it can never mix with those of an earlier generation.
+     */
+    private State next(State from, Status to) {
+        Window window = to == Status.CLOSED ? new Window(policy.getWindowSize()) : null;
+        return new State(to, now(), from.generation + 1, 0, 0, window);
+    }
+
+    private static long now() {
+        return Promise.getScheduler().now();
+    }
+
+    /**
+     * An immutable snapshot of the breaker, replaced as a whole so that status and half-open counts always agree.
+     */
+    private static final class State {
+        private final Status status;
+        private final long since;
+        private final long generation;
+        private final int permits;
+        private final int successes;
+        private final Window window;
+
+        State(Status status, long since, long generation, int permits, int successes, Window window) {
+            this.status = status;
+            this.since = since;
+            this.generation = generation;
+            this.permits = permits;
+            this.successes = successes;
+            this.window = window;
+        }
+
+        State withPermits(int permits) {
+            return new State(status, since, generation, permits, successes, window);
+        }
+
+        State withSuccesses(int successes) {
+            return new State(status, since, generation, permits, successes, window);
+        }
+    }
+
+    /**
+     * The outcomes recorded while closed, with running counts of the recorded, failed and slow calls among them.
+     */
+    private static final class Window {
+        private final AtomicIntegerArray outcomes;
+        private final AtomicLong cursor = new AtomicLong();
+        private final AtomicInteger recorded = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicInteger slowCalls = new AtomicInteger();
+
+        Window(int size) {
+            this.outcomes = new AtomicIntegerArray(size);
+        }
+    }
+
+}
@@ -0,0 +1,16 @@
+package bolts;
+
+/**
+ * Thrown when a call is rejected because the circuit breaker of its service method is open.
+ *
+ * @see CircuitBreakerPolicy
+ */
+public class CircuitBreakerOpenException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,55 @@
+package bolts;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Describes when the circuit breaker of a service method opens.
+ *
+ * The breaker records the outcomes of the last {@code windowSize} calls. Once at least {@code minimumCalls} were
+ * recorded, it opens if the rate of failed calls reaches {@code failureRateThreshold}, or the rate of calls slower
+ * than {@code slowCallDurationMillis} reaches {@code slowCallRateThreshold}. While open, calls are rejected
+ * immediately with a {@link CircuitBreakerOpenException}. After {@code openDurationMillis}, up to
+ * {@code halfOpenCalls} probe calls are let through: the breaker closes if they all succeed, and opens again
+ * otherwise.
+ *
+ * @see CallPolicy.CircuitBreaker
+ */
+@Getter
+@Builder(toBuilder = true)
+public final class CircuitBreakerPolicy {
+
+    @Builder.Default
+    private final double failureRateThreshold = 0.5;
+
+    @Builder.Default
+    private final double slowCallRateThreshold = 1.0;
+
+    @Builder.Default
+    private final long slowCallDurationMillis = 60000;
+
+    @Builder.Default
+    private final int windowSize = 100;
+
+    @Builder.Default
+    private final int minimumCalls = 20;
+
+    @Builder.Default
+    private final long openDurationMillis = 30000;
+
+    @Builder.Default
+    private final int halfOpenCalls = 5;
+
+    static CircuitBreakerPolicy of(CallPolicy.CircuitBreaker annotation) {
+        return builder()
+                .failureRateThreshold(annotation.failureRateThreshold())
+                .slowCallRateThreshold(annotation.slowCallRateThreshold())
+                .slowCallDurationMillis(annotation.slowCallDurationMillis())
+                .windowSize(annotation.windowSize())
+                .minimumCalls(annotation.minimumCalls())
+                .openDurationMillis(annotation.openDurationMillis())
+                .halfOpenCalls(annotation.halfOpenCalls())
+                .build();
+    }
+
+}
@@ -0,0 +1,46 @@
+package bolts;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * A {@link CallHandler} that rejects calls immediately while the circuit breaker of its service method is open.
+ * Network errors and server errors (5xx) count as failures.
+ *
+ * @see CircuitBreakerPolicy
+ */
+final class CircuitBreaking<R> implements CallHandler<R> {
+
+    private final CallHandler<R> next;
+    private final CircuitBreaker breaker;
+
+    CircuitBreaking(CallHandler<R> next, CircuitBreakerPolicy policy) {
+        this.next = next;
+        this.breaker = new CircuitBreaker(policy);
+    }
+
+    @Override
+    public Task<Response<R>> handle(Call<R> call, CancellationToken ct) {
+        final long permit = breaker.tryAcquire();
+        if (permit == CircuitBreaker.REJECTED) {
+            return Task.forError(new CircuitBreakerOpenException(
+                    "Circuit breaker is open for " + call.request().url()));
+        }
+
+        long startTime = Promise.getScheduler().now();
+        return next.handle(call, ct).continueWithTask(task -> {
+            long duration = Promise.getScheduler().now() - startTime;
+
+            if (task.isCancelled()) {
+                breaker.onIgnored(permit);
+            } else if (task.isFaulted() || task.getResult().code() >= 500) {
+                breaker.onFailure(permit, duration);
+            } else {
+                breaker.onSuccess(permit, duration);
+            }
+
+            return task;
+        });
+    }
+
+}
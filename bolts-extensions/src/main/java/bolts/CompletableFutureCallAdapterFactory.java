@@ -0,0 +1,120 @@
+package bolts;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+
+/**
+ * Adapts service methods returning {@link CompletableFuture}, with the same call policies as the Promise and Task
+ * call adapters. Cancelling a returned future cancels the underlying call.
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class CompletableFutureCallAdapterFactory extends CallAdapter.Factory {
+
+    private final CallAdapterOptions options;
+
+    public static CompletableFutureCallAdapterFactory create() {
+        return new CompletableFutureCallAdapterFactory(CallAdapterOptions.defaults());
+    }
+
+    public static CompletableFutureCallAdapterFactory create(CallAdapterOptions options) {
+        return new CompletableFutureCallAdapterFactory(Objects.requireNonNull(options));
+    }
+
+    @Nullable
+    @Override
+    public CallAdapter<?, ?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
+        if (getRawType(returnType) != CompletableFuture.class) {
+            return null;
+        }
+
+        if (!(returnType instanceof ParameterizedType)) {
+            throw new IllegalStateException("CompletableFuture return type must be parameterized"
+                    + " as CompletableFuture<Foo> or CompletableFuture<? extends Foo>");
+        }
+        Type innerType = getParameterUpperBound(0, (ParameterizedType) returnType);
+
+        if (getRawType(innerType) != Response.class) {
+            // Generic type is not Response<T>. Use it for body-only adapter.
+            return new BodyCallAdapter<>(innerType, CallHandlers.create(options, annotations, innerType));
+        }
+
+        // Generic type is Response<T>. Extract T and create the Response version of the adapter.
+        if (!(innerType instanceof ParameterizedType)) {
+            throw new IllegalStateException(
+                    "Response must be parameterized as Response<Foo> or Response<? extends Foo>");
+        }
+        Type responseType = getParameterUpperBound(0, (ParameterizedType) innerType);
+        return new ResponseCallAdapter<>(responseType, CallHandlers.create(options, annotations, responseType));
+    }
+
+    /**
+     * Adapts a single call, handled with a token that is cancelled by the returned future or by the request's own
+     * token if it has one.
+     */
+    private static <T> CompletableFuture<T> futureOf(Call<?> call, Function<CancellationToken, Task<T>> handle) {
+        final CancellationTokenSource cts = new CancellationTokenSource();
+        final CancellationToken ct = CallTasks.tokenOf(call);
+        final CancellationTokens.Registration registration = CancellationTokens.register(ct, cts::cancel);
+
+        CompletableFuture<T> future = Promise.of(handle.apply(cts.getToken())).toCompletableFuture(cts);
+        if (registration != null) {
+            future.whenComplete((result, error) -> registration.release());
+        }
+
+        return future;
+    }
+
+    private static final class BodyCallAdapter<R> implements CallAdapter<R, CompletableFuture<R>> {
+        private final Type responseType;
+        private final CallHandler<R> handler;
+
+        BodyCallAdapter(Type responseType, CallHandler<R> handler) {
+            this.responseType = responseType;
+            this.handler = handler;
+        }
+
+        @Override
+        public Type responseType() {
+            return responseType;
+        }
+
+        @Override
+        public CompletableFuture<R> adapt(final Call<R> call) {
+            return futureOf(call, ct -> CallTasks.body(handler.handle(call, ct)));
+        }
+    }
+
+    private static final class ResponseCallAdapter<R> implements CallAdapter<R, CompletableFuture<Response<R>>> {
+        private final Type responseType;
+        private final CallHandler<R> handler;
+
+        ResponseCallAdapter(Type responseType, CallHandler<R> handler) {
+            this.responseType = responseType;
+            this.handler = handler;
+        }
+
+        @Override
+        public Type responseType() {
+            return responseType;
+        }
+
+        @Override
+        public CompletableFuture<Response<R>> adapt(final Call<R> call) {
+            return futureOf(call, ct -> handler.handle(call, ct));
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+package bolts;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time by which a chain of promises must complete.
+ *
+ * A deadline is measured on the clock of the {@link PromiseScheduler} that was installed when it was created,
+ * and owns a single timer regardless of how many promises are bound to it.
+ *
+ * @see Promise#withDeadline(Deadline)
+ */
+public final class Deadline {
+
+    private final PromiseScheduler scheduler;
+    private final long expiresAt;
+    private final CancellationTokenSource cts = new CancellationTokenSource();
+    private final Set<Runnable> listeners = ConcurrentHashMap.newKeySet();
+    private final PromiseScheduler.Cancellable timer;
+    private volatile boolean expired;
+
+    private Deadline(PromiseScheduler scheduler, long delayMillis) {
+        this.scheduler = scheduler;
+        this.expiresAt = scheduler.now() + delayMillis;
+
+        if (delayMillis <= 0) {
+            timer = null;
+            expire();
+        } else {
+            timer = scheduler.schedule(this::expire, delayMillis);
+        }
+    }
+
+    public static Deadline after(long millis) {
+        return new Deadline(Promise.getScheduler(), millis);
+    }
+
+    public static Deadline after(long duration, TimeUnit unit) {
+        return after(unit.toMillis(duration));
+    }
+
+    public long remainingMillis() {
+        return Math.max(0, expiresAt - scheduler.now());
+    }
+
+    public boolean isExpired() {
+        return expired;
+    }
+
+    /**
+     * Returns a token that is cancelled once the deadline expires. It can be passed to cancellable operations
+     * (such as adapted Retrofit calls) so that their work stops together with the chain.
+     */
+    public CancellationToken getToken() {
+        return cts.getToken();
+    }
+
+    /**
+     * Runs the given action once the deadline expires, or immediately if it already has.
+     * Unlike token registrations, listeners may be removed while the deadline is expiring.
+     */
+    void register(Runnable action) {
+        listeners.add(action);
+        if (expired && listeners.remove(action)) {
+            action.run();
+        }
+    }
+
+    void unregister(Runnable action) {
+        listeners.remove(action);
+    }
+
+    /**
+     * Cancels the timer, so that the deadline never expires. Only used for deadlines private to a single promise,
+     * once that promise has completed.
+     */
+    void cancelTimer() {
+        if (timer != null) {
+            timer.cancel();
+        }
+    }
+
+    private void expire() {
+        expired = true;
+        for (Runnable action : listeners) {
+            if (listeners.remove(action)) {
+                action.run();
+            }
+        }
+        cts.cancel();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[remainingMillis=%d]", super.toString(), remainingMillis());
+    }
+
+}
@@ -0,0 +1,91 @@
+package bolts;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * Delivers promises to a callback one at a time, in the order in which they complete.
+ *
+ * @see Promise#each(List, ContinuationPromise, Executor)
+ */
+final class Each<TResult> {
+
+    private final ContinuationPromise<TResult, Void> callback;
+    private final Executor executor;
+    private final Queue<Promise<TResult>> completed = new ConcurrentLinkedQueue<>();
+    private final TaskCompletionSource<Void> tcs = new TaskCompletionSource<>();
+    private int remaining;
+
+    // Guarded by this:
+    private boolean draining;
+
+    Each(ContinuationPromise<TResult, Void> callback, Executor executor) {
+        this.callback = callback;
+        this.executor = executor;
+    }
+
+    Task<Void> start(List<Promise<TResult>> promises) {
+        remaining = promises.size();
+        if (remaining == 0) {
+            return Task.forResult(null);
+        }
+
+        for (Promise<TResult> promise : promises) {
+            Objects.requireNonNull(promise).getTask().continueWith(task -> {
+                completed.add(promise);
+                schedule();
+                return null;
+            });
+        }
+
+        return tcs.getTask();
+    }
+
+    private void schedule() {
+        synchronized (this) {
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+
+        try {
+            executor.execute(this::drain);
+        } catch (Exception e) {
+            tcs.trySetError(e);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Promise<TResult> promise;
+            while ((promise = completed.poll()) != null) {
+                if (tcs.getTask().isCompleted()) {
+                    continue;
+                }
+
+                try {
+                    callback.then(promise);
+                } catch (Exception e) {
+                    tcs.trySetError(e);
+                    continue;
+                }
+
+                if (--remaining == 0) {
+                    tcs.trySetResult(null);
+                }
+            }
+
+            synchronized (this) {
+                if (completed.isEmpty()) {
+                    draining = false;
+                    return;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,29 @@
+package bolts;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Describes how calls of a service method are hedged: if no successful response has arrived within
+ * {@code delayMillis}, a copy of the call is sent, up to {@code maxHedges} times. The first successful response
+ * wins and the remaining calls are cancelled.
+ *
+ * @see CallPolicy.Hedge
+ */
+@Getter
+@Builder(toBuilder = true)
+public final class HedgePolicy {
+
+    private final long delayMillis;
+
+    @Builder.Default
+    private final int maxHedges = 1;
+
+    static HedgePolicy of(CallPolicy.Hedge annotation) {
+        return builder()
+                .delayMillis(annotation.delayMillis())
+                .maxHedges(annotation.maxHedges())
+                .build();
+    }
+
+}
@@ -0,0 +1,130 @@
+package bolts;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * A {@link CallHandler} that races copies of a slow call, and returns the first successful response.
+ *
+ * @see HedgePolicy
+ */
+final class Hedging<R> implements CallHandler<R> {
+
+    private final CallHandler<R> next;
+    private final HedgePolicy policy;
+    private final boolean idempotentOnly;
+
+    Hedging(CallHandler<R> next, HedgePolicy policy, boolean idempotentOnly) {
+        this.next = next;
+        this.policy = policy;
+        this.idempotentOnly = idempotentOnly;
+    }
+
+    @Override
+    public Task<Response<R>> handle(Call<R> call, CancellationToken ct) {
+        String method = call.request().method();
+        if (idempotentOnly && !"GET".equals(method) && !"HEAD".equals(method)) {
+            return next.handle(call, ct);
+        }
+
+        return new Race(call).start(ct);
+    }
+
+    private final class Race {
+        private final Call<R> call;
+        private final TaskCompletionSource<Response<R>> tcs = new TaskCompletionSource<>();
+        // Cancels attempts still waiting in the handlers below, such as for a rate limit or bulkhead.
+        private final CancellationTokenSource attemptsCts = new CancellationTokenSource();
+
+        // Guarded by this:
+        private final List<Call<R>> attempts = new ArrayList<>();
+        private int pending;
+        private PromiseScheduler.Cancellable timer;
+
+        Race(Call<R> call) {
+            this.call = call;
+        }
+
+        Task<Response<R>> start(CancellationToken ct) {
+            if (ct != null) {
+                CancellationTokens.Registration registration = CancellationTokens.register(ct, () -> {
+                    if (tcs.trySetCancelled()) {
+                        cancelAttempts();
+                    }
+                });
+                tcs.getTask().continueWith(task -> {
+                    registration.release();
+                    return null;
+                });
+            }
+
+            launch();
+            return tcs.getTask();
+        }
+
+        private void launch() {
+            Call<R> attempt;
+            synchronized (this) {
+                if (tcs.getTask().isCompleted()) {
+                    return;
+                }
+
+                attempt = attempts.isEmpty() ? call : call.clone();
+                attempts.add(attempt);
+                pending++;
+
+                if (attempts.size() <= policy.getMaxHedges()) {
+                    timer = Promise.getScheduler().schedule(this::launch, policy.getDelayMillis());
+                }
+            }
+
+            next.handle(attempt, attemptsCts.getToken()).continueWith(task -> {
+                onAttemptCompleted(task);
+                return null;
+            });
+        }
+
+        private void onAttemptCompleted(Task<Response<R>> task) {
+            if (!task.isCancelled() && !task.isFaulted() && task.getResult().isSuccessful()) {
+                if (tcs.trySetResult(task.getResult())) {
+                    cancelAttempts();
+                } else {
+                    CallTasks.discard(task.getResult());
+                }
+                return;
+            }
+
+            synchronized (this) {
+                if (--pending > 0) {
+                    return;
+                }
+            }
+
+            // Every attempt so far has failed; the last one decides the outcome.
+            if (Tasks.trySetFrom(tcs, task)) {
+                cancelAttempts();
+            } else if (task.getResult() != null) {
+                CallTasks.discard(task.getResult());
+            }
+        }
+
+        private void cancelAttempts() {
+            List<Call<R>> calls;
+            synchronized (this) {
+                if (timer != null) {
+                    timer.cancel();
+                }
+                calls = new ArrayList<>(attempts);
+            }
+
+            attemptsCts.cancel();
+            for (Call<R> attempt : calls) {
+                attempt.cancel();
+            }
+        }
+    }
+
+}
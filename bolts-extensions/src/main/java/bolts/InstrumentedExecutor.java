@@ -0,0 +1,54 @@
+package bolts;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wraps an executor to measure how long tasks wait in its queue before they start to run. Pass it to
+ * continuations in place of the wrapped executor.
+ */
+public final class InstrumentedExecutor implements Executor {
+
+    private final Executor delegate;
+    private final LongAdder queued = new LongAdder();
+    private final Histogram queueTime = new Histogram();
+
+    private InstrumentedExecutor(Executor delegate) {
+        this.delegate = delegate;
+    }
+
+    public static InstrumentedExecutor of(Executor executor) {
+        return new InstrumentedExecutor(executor);
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        final long enqueuedAt = System.nanoTime();
+        queued.increment();
+        try {
+            delegate.execute(() -> {
+                queued.decrement();
+                queueTime.record(System.nanoTime() - enqueuedAt);
+                command.run();
+            });
+        } catch (RuntimeException e) {
+            queued.decrement();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of tasks waiting to run.
+     */
+    public long getQueued() {
+        return queued.sum();
+    }
+
+    /**
+     * Returns the time tasks waited before running, in nanoseconds.
+     */
+    public Histogram getQueueTime() {
+        return queueTime;
+    }
+
+}
@@ -0,0 +1,112 @@
+package bolts;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Starts promises from a sequence of suppliers, keeping at most a fixed number of them running at a time.
+ *
+ * @see Promise#allLimited(Iterable, int)
+ */
+final class LimitedAll<TResult> {
+
+    private final Iterator<? extends Supplier<Promise<TResult>>> suppliers;
+    private final int maxConcurrent;
+    private final List<Promise<TResult>> promises = new ArrayList<>();
+    private final TaskCompletionSource<List<Promise<TResult>>> tcs = new TaskCompletionSource<>();
+
+    // Guarded by this:
+    private int running;
+    private boolean draining;
+    private boolean drainRequested;
+
+    LimitedAll(Iterable<? extends Supplier<Promise<TResult>>> suppliers, int maxConcurrent) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be positive");
+        }
+
+        this.suppliers = suppliers.iterator();
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    Task<List<Promise<TResult>>> start() {
+        drain();
+        return tcs.getTask();
+    }
+
+    /**
+     * Starts promises while there are free slots. Promises that complete synchronously request another
+     * iteration from the thread that is already draining, instead of recursing.
+     */
+    private void drain() {
+        synchronized (this) {
+            if (draining) {
+                drainRequested = true;
+                return;
+            }
+            draining = true;
+        }
+
+        while (true) {
+            Supplier<Promise<TResult>> supplier = null;
+            int index = 0;
+            boolean done = false;
+
+            synchronized (this) {
+                if (!tcs.getTask().isCompleted() && running < maxConcurrent && suppliers.hasNext()) {
+                    supplier = suppliers.next();
+                    index = promises.size();
+                    promises.add(null);
+                    running++;
+                } else if (!tcs.getTask().isCompleted() && running == 0 && !suppliers.hasNext()) {
+                    done = true;
+                } else if (!drainRequested) {
+                    draining = false;
+                    return;
+                } else {
+                    drainRequested = false;
+                    continue;
+                }
+            }
+
+            // Completed outside of the lock, since continuations of the result run right away.
+            if (done) {
+                tcs.trySetResult(promises);
+            } else if (supplier != null) {
+                start(supplier, index);
+            }
+        }
+    }
+
+    private void start(Supplier<Promise<TResult>> supplier, int index) {
+        Promise<TResult> promise;
+        try {
+            promise = Objects.requireNonNull(supplier.get());
+        } catch (Exception e) {
+            promise = Promise.reject(e);
+        }
+
+        synchronized (this) {
+            promises.set(index, promise);
+        }
+
+        promise.getTask().continueWith(task -> {
+            if (task.isFaulted()) {
+                tcs.trySetError(task.getError());
+            } else if (task.isCancelled()) {
+                tcs.trySetCancelled();
+            }
+
+            synchronized (this) {
+                running--;
+            }
+
+            drain();
+            return null;
+        });
+    }
+
+}
@@ -0,0 +1,50 @@
+package bolts;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * A {@link CallHandler} that applies a rate limit and/or a bulkhead before calls are enqueued.
+ *
+ * @see RateLimitPolicy
+ * @see BulkheadPolicy
+ */
+final class Limiting<R> implements CallHandler<R> {
+
+    private final CallHandler<R> next;
+    private final RateLimiter rateLimiter;
+    private final Bulkhead bulkhead;
+
+    Limiting(CallHandler<R> next, RateLimitPolicy rateLimit, BulkheadPolicy bulkhead) {
+        this.next = next;
+        this.rateLimiter = rateLimit != null ? new RateLimiter(rateLimit) : null;
+        this.bulkhead = bulkhead != null ? new Bulkhead(bulkhead) : null;
+    }
+
+    @Override
+    public Task<Response<R>> handle(Call<R> call, CancellationToken ct) {
+        Task<Void> permit = rateLimiter != null ? rateLimiter.acquire(ct) : Task.forResult(null);
+
+        if (bulkhead == null) {
+            return permit.onSuccessTask(t -> next.handle(call, ct));
+        }
+
+        return permit
+                .onSuccessTask(t -> bulkhead.acquire(ct))
+                .onSuccessTask(t -> {
+                    Task<Response<R>> response;
+                    try {
+                        response = next.handle(call, ct);
+                    } catch (Throwable e) {
+                        bulkhead.release();
+                        throw e;
+                    }
+
+                    return response.continueWithTask(task -> {
+                        bulkhead.release();
+                        return task;
+                    });
+                });
+    }
+
+}
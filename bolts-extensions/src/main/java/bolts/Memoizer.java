@@ -0,0 +1,54 @@
+package bolts;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Shares the promise of a single supplier call until it fails.
+ *
+ * @see Promise#memoize(Supplier)
+ */
+final class Memoizer<TResult> implements Supplier<Promise<TResult>> {
+
+    private final Supplier<Promise<TResult>> supplier;
+    private final AtomicReference<Promise<TResult>> current = new AtomicReference<>();
+
+    Memoizer(Supplier<Promise<TResult>> supplier) {
+        this.supplier = supplier;
+    }
+
+    @Override
+    public Promise<TResult> get() {
+        Promise<TResult> existing = current.get();
+        if (existing != null) {
+            return existing;
+        }
+
+        final TaskCompletionSource<TResult> tcs = new TaskCompletionSource<>();
+        final Promise<TResult> placeholder = Promise.of(tcs.getTask());
+
+        // Only the caller installing the placeholder calls the supplier; concurrent callers share its promise.
+        while (!current.compareAndSet(null, placeholder)) {
+            Promise<TResult> promise = current.get();
+            if (promise != null) {
+                return promise;
+            }
+        }
+
+        tcs.getTask().continueWith(task -> {
+            if (task.isFaulted() || task.isCancelled()) {
+                current.compareAndSet(placeholder, null);
+            }
+            return null;
+        });
+
+        try {
+            supplier.get().getTask().continueWith(task -> Tasks.trySetFrom(tcs, task));
+        } catch (RuntimeException e) {
+            tcs.trySetError(e);
+        }
+
+        return placeholder;
+    }
+
+}
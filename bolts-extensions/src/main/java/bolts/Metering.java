@@ -0,0 +1,72 @@
+package bolts;
+
+import java.lang.reflect.Method;
+
+import retrofit2.Call;
+import retrofit2.Invocation;
+import retrofit2.Response;
+
+/**
+ * Records {@link MethodMetrics} for the calls of a service method. The method is identified from Retrofit's
+ * {@link Invocation} tag on the first call.
+ */
+final class Metering<R> implements CallHandler<R> {
+
+    private final CallHandler<R> delegate;
+    private final CallMetrics metrics;
+    private volatile MethodMetrics methodMetrics;
+
+    Metering(CallHandler<R> delegate, CallMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Task<Response<R>> handle(Call<R> call, CancellationToken ct) {
+        final MethodMetrics method = methodMetricsOf(call);
+        final long startedAt = System.nanoTime();
+        method.onStart();
+
+        Task<Response<R>> task = delegate.handle(call, ct);
+        task.continueWith(t -> {
+            method.onComplete(t, System.nanoTime() - startedAt);
+            return null;
+        });
+
+        return task;
+    }
+
+    private MethodMetrics methodMetricsOf(Call<R> call) {
+        MethodMetrics method = methodMetrics;
+        if (method != null) {
+            return method;
+        }
+
+        String name = nameOf(call);
+        if (name == null) {
+            // The request could not be created; the call fails without identifying the method.
+            return metrics.forMethod("unknown");
+        }
+
+        method = metrics.forMethod(name);
+        methodMetrics = method;
+        return method;
+    }
+
+    private static String nameOf(Call<?> call) {
+        Invocation invocation;
+        try {
+            invocation = call.request().tag(Invocation.class);
+        } catch (RuntimeException e) {
+            invocation = null;
+        }
+
+        if (invocation == null) {
+            return null;
+        }
+
+        Method method = invocation.method();
+        return method.getDeclaringClass().getSimpleName() + "." + method.getName();
+    }
+
+}
@@ -0,0 +1,67 @@
+package bolts;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+import retrofit2.Response;
+
+/**
+ * Call metrics of a single service method. Calls failing with an exception or an unsuccessful HTTP response are
+ * both counted as errors.
+ *
+ * @see CallMetrics
+ */
+public final class MethodMetrics {
+
+    @Getter
+    private final String name;
+
+    private final LongAdder inFlight = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+
+    /**
+     * Time from adapting a call until its outcome is delivered, in nanoseconds.
+     */
+    @Getter
+    private final Histogram latency = new Histogram();
+
+    MethodMetrics(String name) {
+        this.name = name;
+    }
+
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    public long getSucceededCount() {
+        return succeeded.sum();
+    }
+
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    public long getCancelledCount() {
+        return cancelled.sum();
+    }
+
+    void onStart() {
+        inFlight.increment();
+    }
+
+    void onComplete(Task<? extends Response<?>> task, long latencyNanos) {
+        inFlight.decrement();
+        latency.record(latencyNanos);
+
+        if (task.isCancelled()) {
+            cancelled.increment();
+        } else if (task.isFaulted() || !task.getResult().isSuccessful()) {
+            errors.increment();
+        } else {
+            succeeded.increment();
+        }
+    }
+
+}
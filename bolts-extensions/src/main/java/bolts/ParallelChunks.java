@@ -0,0 +1,92 @@
+package bolts;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits a range of indices into chunks processed by a fixed number of workers. Each worker claims the next
+ * unprocessed chunk until none are left, so that faster workers pick up more chunks and load stays balanced
+ * without a task per element.
+ *
+ * @see Promise#mapParallel(java.util.Collection, java.util.function.Function, Executor, int)
+ * @see Promise#reduce(java.util.Collection, Object, java.util.function.Function,
+ * java.util.function.BinaryOperator, Executor, int)
+ */
+final class ParallelChunks {
+
+    // Chunks per worker, so that uneven work can still be balanced.
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    private final int size;
+    private final int chunkSize;
+    private final int chunkCount;
+    private final int workerCount;
+    private final AtomicInteger nextChunk = new AtomicInteger();
+    private final AtomicInteger activeWorkers;
+    private final TaskCompletionSource<Void> tcs = new TaskCompletionSource<>();
+    private volatile boolean failed;
+
+    interface Body {
+        void run(int chunk, int from, int to) throws Exception;
+    }
+
+    ParallelChunks(int size, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+
+        this.size = size;
+        this.chunkSize = Math.max(1, (int) Math.ceil((double) size / ((long) parallelism * CHUNKS_PER_WORKER)));
+        this.chunkCount = (size + chunkSize - 1) / chunkSize;
+        this.workerCount = Math.min(parallelism, chunkCount);
+        this.activeWorkers = new AtomicInteger(workerCount);
+    }
+
+    int getChunkCount() {
+        return chunkCount;
+    }
+
+    Task<Void> start(final Body body, Executor executor) {
+        if (workerCount == 0) {
+            return Task.forResult(null);
+        }
+
+        for (int i = 0; i < workerCount; i++) {
+            try {
+                executor.execute(() -> work(body));
+            } catch (RuntimeException e) {
+                fail(e);
+                finishWorker();
+            }
+        }
+
+        return tcs.getTask();
+    }
+
+    private void work(Body body) {
+        try {
+            int chunk;
+            while (!failed && (chunk = nextChunk.getAndIncrement()) < chunkCount) {
+                int from = chunk * chunkSize;
+                body.run(chunk, from, Math.min(size, from + chunkSize));
+            }
+        } catch (Throwable t) {
+            fail(t instanceof Exception ? (Exception) t : new ExecutionException(t));
+        } finally {
+            finishWorker();
+        }
+    }
+
+    private void fail(Exception e) {
+        failed = true;
+        tcs.trySetError(e);
+    }
+
+    private void finishWorker() {
+        if (activeWorkers.decrementAndGet() == 0) {
+            tcs.trySetResult(null);
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+package bolts;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Hands out permits asynchronously: callers that cannot get a permit right away receive a pending task that
+ * completes once a permit is granted to them, in arrival order. Subclasses decide when permits are available.
+ */
+abstract class Permits {
+
+    private final int maxQueue;
+    private final Queue<TaskCompletionSource<Void>> waiters = new ArrayDeque<>();
+
+    Permits(int maxQueue) {
+        if (maxQueue < 0) {
+            throw new IllegalArgumentException("maxQueue must not be negative");
+        }
+
+        this.maxQueue = maxQueue;
+    }
+
+    /**
+     * Returns a task that completes when a permit is granted, or rejects if too many callers are waiting.
+     * Cancelling the token while waiting gives up the place in the queue.
+     */
+    Task<Void> acquire(CancellationToken ct) {
+        TaskCompletionSource<Void> tcs;
+        synchronized (this) {
+            if (waiters.isEmpty() && tryTake()) {
+                return Task.forResult(null);
+            }
+
+            if (waiters.size() >= maxQueue) {
+                return Task.forError(new RejectedExecutionException(rejectionMessage()));
+            }
+
+            tcs = new TaskCompletionSource<>();
+            waiters.add(tcs);
+            onQueued();
+        }
+
+        if (ct != null) {
+            CancellationTokens.Registration registration = CancellationTokens.register(ct, () -> cancel(tcs));
+            tcs.getTask().continueWith(task -> {
+                registration.release();
+                return null;
+            });
+        }
+
+        return tcs.getTask();
+    }
+
+    /**
+     * Gives up the place of a waiting caller, so that it no longer counts towards the queue limit.
+     */
+    private void cancel(TaskCompletionSource<Void> tcs) {
+        if (tcs.trySetCancelled()) {
+            synchronized (this) {
+                waiters.remove(tcs);
+            }
+        }
+    }
+
+    /**
+     * Grants available permits to waiting callers.
+     */
+    void drain() {
+        List<TaskCompletionSource<Void>> granted = new ArrayList<>();
+        synchronized (this) {
+            while (!waiters.isEmpty()) {
+                if (waiters.peek().getTask().isCompleted()) {
+                    // Cancelled while waiting.
+                    waiters.poll();
+                } else if (tryTake()) {
+                    granted.add(waiters.poll());
+                } else {
+                    onQueued();
+                    break;
+                }
+            }
+        }
+
+        for (TaskCompletionSource<Void> tcs : granted) {
+            if (!tcs.trySetResult(null)) {
+                // Cancelled after being granted; give the permit back.
+                giveBack();
+            }
+        }
+    }
+
+    /**
+     * Takes a permit if one is available. Called while holding the lock.
+     */
+    abstract boolean tryTake();
+
+    /**
+     * Returns a permit that was taken but not used.
+     */
+    abstract void giveBack();
+
+    /**
+     * Called while holding the lock when callers are left waiting.
+     */
+    void onQueued() {
+    }
+
+    abstract String rejectionMessage();
+
+}
@@ -0,0 +1,30 @@
+package bolts;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Lanes of a {@link PriorityExecutor}. The weight of a lane is its share of dequeues while all lanes are busy.
+ *
+ * @see Promise#withPriority(Priority)
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public enum Priority {
+
+    /**
+     * Latency-critical work, such as requests a user is waiting on.
+     */
+    HIGH(8),
+
+    NORMAL(3),
+
+    /**
+     * Bulk work, such as prefetching and batch jobs.
+     */
+    LOW(1);
+
+    @Getter
+    private final int weight;
+
+}
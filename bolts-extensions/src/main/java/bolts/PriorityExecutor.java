@@ -0,0 +1,209 @@
+package bolts;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A fixed thread pool with a queue per {@link Priority}, so that latency-critical continuations do not wait
+ * behind bulk work when the pool is saturated.
+ *
+ * Lanes are dequeued with smooth weighted round robin: while all lanes have work, each gets a share of the
+ * threads proportional to its weight. A task that has waited longer than the maximum wait is dequeued next
+ * regardless of its lane, so low-priority work is never starved.
+ *
+ * Continuations of a promise with a priority (see {@link Promise#withPriority(Priority)}) run in the lane of that
+ * priority. Tasks submitted without a priority run in the lane of the task submitting them, or in the
+ * {@link Priority#NORMAL} lane.
+ */
+public final class PriorityExecutor implements Executor {
+
+    private static final Priority[] PRIORITIES = Priority.values();
+    private static final ThreadLocal<Priority> CURRENT_PRIORITY = new ThreadLocal<>();
+
+    private final long maxWaitNanos;
+    private final Executor[] laneExecutors = new Executor[PRIORITIES.length];
+    private final AtomicIntegerArray depths = new AtomicIntegerArray(PRIORITIES.length);
+    private final Histogram[] queueTimes = new Histogram[PRIORITIES.length];
+
+    private final Object lock = new Object();
+
+    // Guarded by lock:
+    private final List<ArrayDeque<Entry>> queues = new ArrayList<>(PRIORITIES.length);
+    private final int[] credits = new int[PRIORITIES.length];
+    private boolean shutdown;
+
+    private PriorityExecutor(int threads, long maxWaitMillis) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        for (Priority priority : PRIORITIES) {
+            queues.add(new ArrayDeque<>());
+            queueTimes[priority.ordinal()] = new Histogram();
+            laneExecutors[priority.ordinal()] = command -> execute(command, priority);
+        }
+
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(this::work, "promise-priority-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public static PriorityExecutor create(int threads) {
+        return new PriorityExecutor(threads, 1000);
+    }
+
+    /**
+     * Creates an executor that runs any task waiting longer than the given time next, regardless of its lane.
+     */
+    public static PriorityExecutor create(int threads, long maxWaitMillis) {
+        return new PriorityExecutor(threads, maxWaitMillis);
+    }
+
+    /**
+     * Returns an executor submitting to the given lane.
+     */
+    public Executor lane(Priority priority) {
+        return laneExecutors[priority.ordinal()];
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Priority current = CURRENT_PRIORITY.get();
+        execute(command, current != null ? current : Priority.NORMAL);
+    }
+
+    public void execute(Runnable command, Priority priority) {
+        Entry entry = new Entry(command, priority, System.nanoTime());
+        synchronized (lock) {
+            if (shutdown) {
+                throw new RejectedExecutionException("Executor has been shut down");
+            }
+            queues.get(priority.ordinal()).add(entry);
+            depths.incrementAndGet(priority.ordinal());
+            lock.notify();
+        }
+    }
+
+    /**
+     * Returns the number of tasks waiting in the given lane.
+     */
+    public int getQueueDepth(Priority priority) {
+        return depths.get(priority.ordinal());
+    }
+
+    /**
+     * Returns the time tasks of the given lane waited before running, in nanoseconds.
+     */
+    public Histogram getQueueTime(Priority priority) {
+        return queueTimes[priority.ordinal()];
+    }
+
+    /**
+     * Rejects new tasks. Queued tasks still run, after which the threads exit.
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+            lock.notifyAll();
+        }
+    }
+
+    private void work() {
+        Entry entry;
+        while ((entry = take()) != null) {
+            queueTimes[entry.priority.ordinal()].record(System.nanoTime() - entry.enqueuedAt);
+            CURRENT_PRIORITY.set(entry.priority);
+            try {
+                entry.command.run();
+            } catch (Throwable t) {
+                // Report the failure, but keep the thread: the pool has a fixed number of them.
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+            } finally {
+                CURRENT_PRIORITY.remove();
+                // Do not leak an interrupt of one task into the next.
+                Thread.interrupted();
+            }
+        }
+    }
+
+    private Entry take() {
+        synchronized (lock) {
+            while (true) {
+                Entry entry = poll();
+                if (entry != null) {
+                    depths.decrementAndGet(entry.priority.ordinal());
+                    return entry;
+                } else if (shutdown) {
+                    return null;
+                }
+
+                try {
+                    lock.wait();
+                } catch (InterruptedException ignored) {
+                    // The pool has a fixed number of threads, so only shutdown() stops them.
+                }
+            }
+        }
+    }
+
+    /**
+     * Dequeues the oldest task past the maximum wait if there is one, or else the head of the lane picked by
+     * smooth weighted round robin.
+     */
+    private Entry poll() {
+        long now = System.nanoTime();
+        int starved = -1;
+        int picked = -1;
+        int totalWeight = 0;
+
+        for (int i = 0; i < queues.size(); i++) {
+            Entry head = queues.get(i).peek();
+            if (head == null) {
+                // Idle lanes do not accumulate credit.
+                credits[i] = 0;
+                continue;
+            }
+
+            if (now - head.enqueuedAt >= maxWaitNanos
+                    && (starved < 0 || head.enqueuedAt < queues.get(starved).peek().enqueuedAt)) {
+                starved = i;
+            }
+
+            credits[i] += PRIORITIES[i].getWeight();
+            totalWeight += PRIORITIES[i].getWeight();
+            if (picked < 0 || credits[i] > credits[picked]) {
+                picked = i;
+            }
+        }
+
+        if (picked < 0) {
+            return null;
+        }
+
+        int lane = starved >= 0 ? starved : picked;
+        credits[lane] -= totalWeight;
+        return queues.get(lane).poll();
+    }
+
+    private static final class Entry {
+        final Runnable command;
+        final Priority priority;
+        final long enqueuedAt;
+
+        Entry(Runnable command, Priority priority, long enqueuedAt) {
+            this.command = command;
+            this.priority = priority;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+}
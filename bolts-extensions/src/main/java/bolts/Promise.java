@@ -1,59 +1,201 @@
 package bolts;
 
 import com.google.common.collect.Collections2;
-import com.google.common.collect.Iterables;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
-import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 
-@AllArgsConstructor(access = AccessLevel.PRIVATE)
 public class Promise<TResult> {
 
     // Pre-defined executors:
     private static final Executor IMMEDIATE_EXECUTOR = BoltsExecutors.immediate();
     public static final Executor BACKGROUND_EXECUTOR = BoltsExecutors.background();
     public static final Executor UI_THREAD_EXECUTOR = AndroidExecutors.uiThread();
+    public static final Executor TRAMPOLINE_EXECUTOR = new TrampolineExecutor();
+
+    // Shared instances of completed promises without a result:
+    private static final Promise<?> RESOLVED_NULL = Promise.of(Task.forResult(null));
+    private static final Promise<?> CANCELLED = Promise.of(Task.cancelled());
+
+    // Continuations of completed promises on the immediate executor run inline, up to this nesting depth. Deeper
+    // continuations go through Bolts, which moves them to a background thread to protect the stack.
+    private static final int MAX_INLINE_DEPTH = 15;
+    private static final ThreadLocal<int[]> INLINE_DEPTH = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    // Scheduler backing all delay-based promises:
+    private static volatile PromiseScheduler scheduler = PromiseSchedulers.getDefault();
+
+    // Optional lifecycle hooks, disabled by default:
+    private static volatile PromiseInstrumentation instrumentation;
+
+    // Starts a lazy promise on first use:
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Promise, Runnable> STARTER =
+            AtomicReferenceFieldUpdater.newUpdater(Promise.class, Runnable.class, "starter");
 
-    @Getter
     private Task<TResult> task;
 
+    @Getter
+    private Deadline deadline;
+
+    @Getter
+    private Priority priority;
+
+    private volatile Runnable starter;
+
+    private Promise(Task<TResult> task, Deadline deadline, Priority priority) {
+        this.task = task;
+        this.deadline = deadline;
+        this.priority = priority;
+
+        final PromiseInstrumentation instrumentation = Promise.instrumentation;
+        if (instrumentation != null) {
+            instrumentation.onCreated(this);
+            task.continueWith(t -> {
+                instrumentation.onCompleted(this);
+                return null;
+            }, IMMEDIATE_EXECUTOR);
+        }
+    }
+
     public static <TResult> Promise<TResult> of(Task<TResult> task) {
-        return new Promise<>(task);
+        return new Promise<>(task, null, null);
     }
 
+    /**
+     * Returns a cold promise, which calls the supplier only once a continuation is attached, it is awaited or its
+     * task is requested. Status methods such as {@link #isCompleted()} do not start it.
+     */
+    public static <TResult> Promise<TResult> lazy(final Supplier<Promise<TResult>> supplier) {
+        final TaskCompletionSource<TResult> tcs = new TaskCompletionSource<>();
+        Promise<TResult> promise = Promise.of(tcs.getTask());
+        promise.starter = () -> {
+            try {
+                supplier.get().getTask().continueWith(task -> Tasks.trySetFrom(tcs, task));
+            } catch (RuntimeException e) {
+                tcs.trySetError(e);
+            }
+        };
+        return promise;
+    }
+
+    /**
+     * Returns a supplier that calls the given supplier at most once, even under concurrent first access, and
+     * shares the promise it returns. A promise that fails or is cancelled is forgotten, so that the next call
+     * starts over.
+     */
+    public static <TResult> Supplier<Promise<TResult>> memoize(Supplier<Promise<TResult>> supplier) {
+        return new Memoizer<>(supplier);
+    }
+
+    @SuppressWarnings("unchecked")
     public static <TResult> Promise<TResult> resolve() {
-        return Promise.of(Task.forResult(null));
+        return (Promise<TResult>) RESOLVED_NULL;
     }
 
     public static <TResult> Promise<TResult> resolve(TResult value) {
-        return Promise.of(Task.forResult(value));
+        return value == null ? resolve() : Promise.of(Task.forResult(value));
     }
 
     public static <TResult> Promise<TResult> reject(Exception error) {
         return Promise.of(Task.forError(error));
     }
 
+    @SuppressWarnings("unchecked")
     public static <TResult> Promise<TResult> cancelled() {
-        return Promise.of(Task.cancelled());
+        return (Promise<TResult>) CANCELLED;
     }
 
-    public static <TResult> Promise<TResult> sleep(long millis) {
-        TaskCompletionSource<TResult> tcs = new TaskCompletionSource<>();
+    public static <TResult> Promise<TResult> fromFuture(CompletionStage<TResult> stage) {
+        return fromFuture(stage, null);
+    }
 
-        new Thread(() -> {
-            try {
-                Thread.sleep(millis);
-                tcs.setResult(null);
-            } catch (InterruptedException e) {
-                tcs.setError(e);
+    /**
+     * Returns a promise that settles with the given stage. Errors are unwrapped from {@link CompletionException},
+     * and a cancelled future cancels the promise. Cancelling the token cancels the stage, if it is a {@link Future}.
+     */
+    public static <TResult> Promise<TResult> fromFuture(final CompletionStage<TResult> stage, CancellationToken ct) {
+        if (ct != null && ct.isCancellationRequested()) {
+            cancelFuture(stage);
+            return Promise.cancelled();
+        }
+
+        final TaskCompletionSource<TResult> tcs = new TaskCompletionSource<>();
+        final CancellationTokens.Registration registration = CancellationTokens.register(ct, () -> {
+            cancelFuture(stage);
+            tcs.trySetCancelled();
+        });
+
+        stage.whenComplete((result, error) -> {
+            if (registration != null) {
+                registration.release();
             }
-        }).start();
+
+            if (error instanceof CompletionException && error.getCause() != null) {
+                error = error.getCause();
+            }
+
+            if (error == null) {
+                tcs.trySetResult(result);
+            } else if (error instanceof CancellationException) {
+                tcs.trySetCancelled();
+            } else {
+                tcs.trySetError(error instanceof Exception ? (Exception) error : new Exception(error));
+            }
+        });
+
+        return Promise.of(tcs.getTask());
+    }
+
+    public static <TResult> Promise<TResult> sleep(long millis) {
+        return sleep(millis, null);
+    }
+
+    public static <TResult> Promise<TResult> sleep(long millis, CancellationToken ct) {
+        if (ct != null && ct.isCancellationRequested()) {
+            return Promise.cancelled();
+        }
+
+        TaskCompletionSource<TResult> tcs = new TaskCompletionSource<>();
+        PromiseScheduler.Cancellable timer = scheduler.schedule(() -> tcs.trySetResult(null), millis);
+
+        if (ct != null) {
+            CancellationTokens.Registration registration = CancellationTokens.register(ct, () -> {
+                timer.cancel();
+                tcs.trySetCancelled();
+            });
+            tcs.getTask().continueWith(task -> {
+                registration.release();
+                return null;
+            });
+        }
 
         return Promise.of(tcs.getTask());
     }
@@ -67,27 +209,364 @@ public class Promise<TResult> {
                 .thenReturn(promise -> promises);
     }
 
+    /**
+     * Similar to {@link #all(List)}, but starts the promises lazily from the given suppliers so that at most
+     * {@code maxConcurrent} of them are running at any time. Results keep the order of the suppliers.
+     * Rejects (or cancels) as soon as one promise fails, in which case the remaining suppliers are never called.
+     */
+    public static <TResult> Promise<List<Promise<TResult>>> allLimited(
+            Iterable<? extends Supplier<Promise<TResult>>> suppliers,
+            int maxConcurrent) {
+        return Promise.of(new LimitedAll<>(suppliers, maxConcurrent).start());
+    }
+
+    /**
+     * Returns promises that complete in the order in which the given promises complete: the first returned
+     * promise completes like whichever given promise completes first, and so on.
+     */
+    public static <TResult> List<Promise<TResult>> inCompletionOrder(List<Promise<TResult>> promises) {
+        List<TaskCompletionSource<TResult>> sources = new ArrayList<>(promises.size());
+        List<Promise<TResult>> ordered = new ArrayList<>(promises.size());
+        for (int i = 0; i < promises.size(); i++) {
+            TaskCompletionSource<TResult> tcs = new TaskCompletionSource<>();
+            sources.add(tcs);
+            ordered.add(Promise.of(tcs.getTask()));
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        for (Promise<TResult> promise : promises) {
+            Objects.requireNonNull(promise).getTask().continueWith(task -> {
+                Tasks.trySetFrom(sources.get(next.getAndIncrement()), task);
+                return null;
+            });
+        }
+
+        return ordered;
+    }
+
+    public static <TResult> Promise<Void> each(
+            List<Promise<TResult>> promises,
+            ContinuationPromise<TResult, Void> callback) {
+        return each(promises, callback, IMMEDIATE_EXECUTOR);
+    }
+
+    /**
+     * Invokes the callback with each of the given promises as soon as it completes (successfully or not), one
+     * at a time and in completion order, without collecting their results. The returned promise resolves after
+     * the callback has seen every promise, or rejects as soon as the callback throws.
+     */
+    public static <TResult> Promise<Void> each(
+            List<Promise<TResult>> promises,
+            ContinuationPromise<TResult, Void> callback,
+            Executor executor) {
+        return Promise.of(new Each<>(callback, executor).start(promises));
+    }
+
+    public static <T, TResult> Promise<List<TResult>> mapParallel(
+            Collection<? extends T> items,
+            Function<? super T, ? extends TResult> mapper) {
+        return mapParallel(items, mapper, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Applies the mapper to every item on up to {@code parallelism} threads of the executor, and resolves with
+     * the results in the order of the items. Items are processed in chunks, writing into a single pre-sized
+     * result array, and the first exception thrown by the mapper rejects the promise.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, TResult> Promise<List<TResult>> mapParallel(
+            Collection<? extends T> items,
+            final Function<? super T, ? extends TResult> mapper,
+            Executor executor,
+            int parallelism) {
+        final Object[] input = items.toArray();
+        final Object[] output = new Object[input.length];
+
+        return Promise.of(new ParallelChunks(input.length, parallelism).start((chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                output[i] = mapper.apply((T) input[i]);
+            }
+        }, executor).onSuccess(task -> (List<TResult>) Arrays.asList(output)));
+    }
+
+    public static <T, TResult> Promise<TResult> reduce(
+            Collection<? extends T> items,
+            TResult identity,
+            Function<? super T, ? extends TResult> mapper,
+            BinaryOperator<TResult> combiner) {
+        return reduce(items, identity, mapper, combiner,
+                ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Maps every item and folds the results with the combiner, on up to {@code parallelism} threads of the
+     * executor. Each chunk of items is folded separately starting from the identity, and the partial results are
+     * then combined in order, so the combiner must be associative.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, TResult> Promise<TResult> reduce(
+            Collection<? extends T> items,
+            final TResult identity,
+            final Function<? super T, ? extends TResult> mapper,
+            final BinaryOperator<TResult> combiner,
+            Executor executor,
+            int parallelism) {
+        final Object[] input = items.toArray();
+        final ParallelChunks chunks = new ParallelChunks(input.length, parallelism);
+        final Object[] partials = new Object[chunks.getChunkCount()];
+
+        return Promise.of(chunks.start((chunk, from, to) -> {
+            TResult partial = identity;
+            for (int i = from; i < to; i++) {
+                partial = combiner.apply(partial, mapper.apply((T) input[i]));
+            }
+            partials[chunk] = partial;
+        }, executor).onSuccess(task -> {
+            TResult result = identity;
+            for (Object partial : partials) {
+                result = combiner.apply(result, (TResult) partial);
+            }
+            return result;
+        }));
+    }
+
     public static <TResult> Promise<Promise<TResult>> any(List<Promise<TResult>> promises) {
-        Collection<Task<TResult>> tasks = Collections2
-                .transform(promises, p -> Objects.requireNonNull(p).getTask());
+        return any(promises, null);
+    }
+
+    /**
+     * Resolves with the first promise to complete (successfully or not), or rejects with a
+     * {@link NoSuchElementException} if there are none. The given token source (if any) is cancelled once the
+     * winner is known, which stops the losers if they were started with its token.
+     */
+    public static <TResult> Promise<Promise<TResult>> any(
+            List<Promise<TResult>> promises,
+            CancellationTokenSource losers) {
+        if (promises.isEmpty()) {
+            return Promise.reject(new NoSuchElementException("No promises to wait for"));
+        }
+
+        TaskCompletionSource<Promise<TResult>> tcs = new TaskCompletionSource<>();
+        for (Promise<TResult> promise : promises) {
+            Objects.requireNonNull(promise).getTask().continueWith(task -> {
+                if (tcs.trySetResult(promise) && losers != null) {
+                    losers.cancel();
+                }
+                return null;
+            });
+        }
 
-        return Promise
-                .of(Task.whenAnyResult(tasks))
-                .thenReturn(promise -> Iterables.find(promises, p -> Objects.requireNonNull(p).getTask() == promise.getResult()));
+        return Promise.of(tcs.getTask());
+    }
+
+    public static <TResult> Promise<TResult> anySuccessful(List<Promise<TResult>> promises) {
+        return anySuccessful(promises, null);
+    }
+
+    /**
+     * Resolves with the result of the first promise to resolve, ignoring failures. Rejects with an
+     * {@link AggregateException} of all errors if none resolves, or cancels if all of them are cancelled.
+     * The given token source (if any) is cancelled once the winner is known.
+     */
+    public static <TResult> Promise<TResult> anySuccessful(
+            List<Promise<TResult>> promises,
+            CancellationTokenSource losers) {
+        if (promises.isEmpty()) {
+            return Promise.cancelled();
+        }
+
+        TaskCompletionSource<TResult> tcs = new TaskCompletionSource<>();
+        AtomicInteger remaining = new AtomicInteger(promises.size());
+        List<Exception> errors = Collections.synchronizedList(new ArrayList<>());
+
+        for (Promise<TResult> promise : promises) {
+            Objects.requireNonNull(promise).getTask().continueWith(task -> {
+                if (task.isFaulted()) {
+                    errors.add(task.getError());
+                } else if (!task.isCancelled() && tcs.trySetResult(task.getResult()) && losers != null) {
+                    losers.cancel();
+                }
+
+                if (remaining.decrementAndGet() == 0) {
+                    if (errors.isEmpty()) {
+                        tcs.trySetCancelled();
+                    } else {
+                        tcs.trySetError(new AggregateException("All promises failed", errors));
+                    }
+                }
+                return null;
+            });
+        }
+
+        return Promise.of(tcs.getTask());
+    }
+
+    public static <TResult> Promise<TResult> retrying(Supplier<Promise<TResult>> supplier, RetryPolicy policy) {
+        return retrying(supplier, policy, null);
+    }
+
+    /**
+     * Returns a promise for the result of the promise created by the supplier, calling the supplier again
+     * (after a backoff delay) while the promise rejects with a retryable error as described by the policy.
+     * Cancelling the token stops further attempts.
+     */
+    public static <TResult> Promise<TResult> retrying(
+            Supplier<Promise<TResult>> supplier,
+            RetryPolicy policy,
+            CancellationToken ct) {
+        policy.onFirstAttempt();
+        return attempt(supplier, policy, ct, 1);
+    }
+
+    private static <TResult> Promise<TResult> attempt(
+            Supplier<Promise<TResult>> supplier,
+            RetryPolicy policy,
+            CancellationToken ct,
+            int attempts) {
+        Promise<TResult> promise;
+        try {
+            promise = Objects.requireNonNull(supplier.get());
+        } catch (Exception e) {
+            promise = Promise.reject(e);
+        }
+
+        return promise.except(p -> {
+            if (!policy.shouldRetry(attempts, p.getError())) {
+                return p;
+            }
+
+            return Promise.sleep(policy.delayMillis(attempts), ct)
+                    .then(s -> attempt(supplier, policy, ct, attempts + 1));
+        }, Exception.class);
     }
 
     public static <TResult> TResult await(Promise<TResult> promise) throws InterruptedException {
-        promise.getTask().waitForCompletion();
-        return promise.getTask().getResult();
+        CountDownLatch latch = latchFor(Collections.singletonList(promise));
+        if (latch != null) {
+            latch.await();
+        }
+        return promise.getResult();
+    }
+
+    /**
+     * Awaits for the promise to complete and returns the result, or null if it failed or was cancelled.
+     *
+     * A timeout of zero or less only checks whether the promise has completed, without blocking.
+     *
+     * @throws TimeoutException if the promise has not completed within the timeout
+     */
+    public static <TResult> TResult await(Promise<TResult> promise, long timeout, TimeUnit unit)
+            throws InterruptedException, TimeoutException {
+        CountDownLatch latch = latchFor(Collections.singletonList(promise));
+        if (latch != null && !latch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return promise.getResult();
+    }
+
+    /**
+     * Awaits for the promise to complete and returns the result. Rethrows the error of a failed promise, and throws
+     * a {@link CancellationException} if the promise was cancelled.
+     */
+    public static <TResult> TResult awaitOrThrow(Promise<TResult> promise) throws Exception {
+        await(promise);
+        return resultOrThrow(promise);
+    }
+
+    public static <TResult> TResult awaitOrThrow(Promise<TResult> promise, long timeout, TimeUnit unit)
+            throws Exception {
+        await(promise, timeout, unit);
+        return resultOrThrow(promise);
+    }
+
+    /**
+     * Awaits for all promises to complete, blocking on a single latch. Passing a null deadline waits indefinitely.
+     *
+     * @throws TimeoutException if some promise has not completed before the deadline
+     */
+    public static void awaitAll(Collection<? extends Promise<?>> promises, Deadline deadline)
+            throws InterruptedException, TimeoutException {
+        CountDownLatch latch = latchFor(promises);
+        if (latch == null) {
+            return;
+        }
+
+        if (deadline == null) {
+            latch.await();
+        } else if (!latch.await(deadline.remainingMillis(), TimeUnit.MILLISECONDS)) {
+            throw new TimeoutException("Deadline exceeded");
+        }
+    }
+
+    /**
+     * Returns a latch released once all given promises have completed, or null if they already have.
+     */
+    private static CountDownLatch latchFor(Collection<? extends Promise<?>> promises) {
+        List<Task<?>> pending = new ArrayList<>();
+        for (Promise<?> promise : promises) {
+            if (!promise.isCompleted()) {
+                pending.add(promise.getTask());
+            }
+        }
+        if (pending.isEmpty()) {
+            return null;
+        }
+
+        // Task.waitForCompletion() waits on a monitor, which pins a virtual thread to its carrier thread.
+        final CountDownLatch latch = new CountDownLatch(pending.size());
+        for (Task<?> task : pending) {
+            task.continueWith(t -> {
+                latch.countDown();
+                return null;
+            }, IMMEDIATE_EXECUTOR);
+        }
+        return latch;
+    }
+
+    private static <TResult> TResult resultOrThrow(Promise<TResult> promise) throws Exception {
+        if (promise.isCancelled()) {
+            throw new CancellationException();
+        } else if (promise.isFaulted()) {
+            throw promise.getError();
+        }
+        return promise.getResult();
+    }
+
+    public static PromiseScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public static void setScheduler(PromiseScheduler scheduler) {
+        Promise.scheduler = scheduler != null ? scheduler : PromiseSchedulers.getDefault();
+    }
+
+    public static PromiseInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * Installs hooks notified of every promise created from now on. Passing null disables instrumentation.
+     */
+    public static void setInstrumentation(PromiseInstrumentation instrumentation) {
+        Promise.instrumentation = instrumentation;
     }
 
     public <TContinuationResult> Promise<TContinuationResult> then(
             final ContinuationPromise<TResult, Promise<TContinuationResult>> continuation,
             final Executor executor,
             final CancellationToken ct) {
+        if (canRunInline(executor, ct)) {
+            return isSuccessful() ? runInline(continuation) : propagate();
+        }
+
+        if (executor == TRAMPOLINE_EXECUTOR) {
+            return derive(trampoline(getTask()
+                    .onSuccess(task -> continuation.then(this).getTask(), executor, ct)));
+        }
+
         Task<TContinuationResult> wrappedTask = getTask()
-                .onSuccessTask(task -> continuation.then(this).getTask(), executor, ct);
-        return Promise.of(wrappedTask);
+                .onSuccessTask(task -> continuation.then(this).getTask(), laneOf(executor), ct);
+        return derive(wrappedTask);
     }
 
     public <TContinuationResult> Promise<TContinuationResult> then(
@@ -111,9 +590,13 @@ public class Promise<TResult> {
             final ContinuationPromise<TResult, TContinuationResult> continuation,
             final Executor executor,
             final CancellationToken ct) {
+        if (canRunInline(executor, ct)) {
+            return isSuccessful() ? runInlineReturn(continuation) : propagate();
+        }
+
         Task<TContinuationResult> wrappedTask = getTask()
-                .onSuccess(task -> continuation.then(this), executor, ct);
-        return Promise.of(wrappedTask);
+                .onSuccess(task -> continuation.then(this), laneOf(executor), ct);
+        return derive(wrappedTask);
     }
 
     public <TContinuationResult> Promise<TContinuationResult> thenReturn(
@@ -137,9 +620,18 @@ public class Promise<TResult> {
             final ContinuationPromise<TResult, Promise<TContinuationResult>> continuation,
             final Executor executor,
             final CancellationToken ct) {
+        if (canRunInline(executor, ct)) {
+            return runInline(continuation);
+        }
+
+        if (executor == TRAMPOLINE_EXECUTOR) {
+            return deriveRecovery(trampoline(getTask()
+                    .continueWith(task -> bindRecovery(continuation.then(this).getTask()), executor, ct)));
+        }
+
         Task<TContinuationResult> wrappedTask = getTask()
-                .continueWithTask(task -> continuation.then(this).getTask(), executor, ct);
-        return Promise.of(wrappedTask);
+                .continueWithTask(task -> bindRecovery(continuation.then(this).getTask()), laneOf(executor), ct);
+        return deriveRecovery(wrappedTask);
     }
 
     public <TContinuationResult> Promise<TContinuationResult> always(
@@ -163,9 +655,13 @@ public class Promise<TResult> {
             final ContinuationPromise<TResult, TContinuationResult> continuation,
             final Executor executor,
             final CancellationToken ct) {
+        if (canRunInline(executor, ct)) {
+            return runInlineReturn(continuation);
+        }
+
         Task<TContinuationResult> wrappedTask = getTask()
-                .continueWith(task -> continuation.then(this), executor, ct);
-        return Promise.of(wrappedTask);
+                .continueWith(task -> continuation.then(this), laneOf(executor), ct);
+        return deriveRecovery(wrappedTask);
     }
 
     public <TContinuationResult> Promise<TContinuationResult> alwaysReturn(
@@ -190,16 +686,25 @@ public class Promise<TResult> {
             final Class exceptionClass,
             final Executor executor,
             final CancellationToken ct) {
+        if (canRunInline(executor, ct)) {
+            return isFaulted() && exceptionClass.isInstance(getError()) ? runInline(continuation) : this;
+        }
 
-        Task<TResult> wrappedTask = getTask().continueWithTask(task -> {
+        Continuation<TResult, Task<TResult>> handler = task -> {
             if (task.isFaulted() && exceptionClass.isInstance(task.getError())) {
-                return continuation.then(this).getTask();
+                return bindRecovery(continuation.then(this).getTask());
             }
 
             return task;
-        }, executor, ct);
+        };
 
-        return Promise.of(wrappedTask);
+        if (executor == TRAMPOLINE_EXECUTOR) {
+            return deriveRecovery(trampoline(getTask().continueWith(handler, executor, ct)));
+        }
+
+        Task<TResult> wrappedTask = getTask().continueWithTask(handler, laneOf(executor), ct);
+
+        return deriveRecovery(wrappedTask);
     }
 
     public Promise<TResult> except(
@@ -222,16 +727,254 @@ public class Promise<TResult> {
         return except(continuation, exceptionClass, IMMEDIATE_EXECUTOR, ct);
     }
 
+    public Promise<TResult> timeout(long millis) {
+        return timeout(millis, (CancellationTokenSource) null);
+    }
+
+    public Promise<TResult> timeout(long duration, TimeUnit unit) {
+        return timeout(unit.toMillis(duration), (CancellationTokenSource) null);
+    }
+
+    /**
+     * Returns a promise that rejects with a {@link TimeoutException} if this promise has not completed within
+     * the given time. The given token source (if any) is cancelled on timeout, which allows stopping the
+     * underlying work. Unlike {@link #withDeadline(Deadline)}, the timeout does not apply to chained promises.
+     */
+    public Promise<TResult> timeout(long millis, CancellationTokenSource cts) {
+        Task<TResult> task = getTask();
+        if (task.isCompleted()) {
+            return new Promise<>(task, deadline, priority);
+        }
+
+        // Nothing else sees this deadline, so its timer can go as soon as the promise completes.
+        final Deadline timeout = Deadline.after(millis);
+        task.continueWith(t -> {
+            timeout.cancelTimer();
+            return null;
+        });
+        return new Promise<>(bind(task, timeout, cts), deadline, priority);
+    }
+
+    /**
+     * Returns a promise that rejects with a {@link TimeoutException} if this promise has not completed before
+     * the given deadline. The deadline propagates to all promises chained from the returned promise, so that
+     * the whole chain shares one budget. Passing null returns a promise without a deadline.
+     *
+     * Recovery handlers ({@code except}, {@code always}) can handle the {@link TimeoutException}: their results are
+     * not rejected by a deadline that expired before they ran. Later stages still carry the expired deadline, and
+     * reject unless they complete right away, so continue a recovered chain after {@code withDeadline(null)}.
+     */
+    public Promise<TResult> withDeadline(Deadline deadline) {
+        if (deadline == null) {
+            return new Promise<>(getTask(), null, priority);
+        }
+
+        return new Promise<>(bind(getTask(), deadline, null), deadline, priority);
+    }
+
+    /**
+     * Returns a promise whose continuations run in the lane of the given priority when they target a
+     * {@link PriorityExecutor}. The priority propagates to all promises chained from the returned promise.
+     */
+    public Promise<TResult> withPriority(Priority priority) {
+        return new Promise<>(getTask(), deadline, priority);
+    }
+
+    public CompletableFuture<TResult> toCompletableFuture() {
+        return toCompletableFuture(null);
+    }
+
+    /**
+     * Returns a future that completes with this promise. A cancelled promise cancels the future, and cancelling
+     * the future cancels the given token source, which should be the one driving this promise.
+     */
+    public CompletableFuture<TResult> toCompletableFuture(final CancellationTokenSource cts) {
+        final CompletableFuture<TResult> future = new CompletableFuture<>();
+
+        getTask().continueWith(task -> {
+            if (task.isCancelled()) {
+                future.cancel(false);
+            } else if (task.isFaulted()) {
+                future.completeExceptionally(task.getError());
+            } else {
+                future.complete(task.getResult());
+            }
+            return null;
+        }, IMMEDIATE_EXECUTOR);
+
+        if (cts != null) {
+            future.whenComplete((result, error) -> {
+                if (future.isCancelled()) {
+                    cts.cancel();
+                }
+            });
+        }
+
+        return future;
+    }
+
+    /**
+     * Continuations of an already completed promise without a deadline or token, on the immediate executor, are
+     * run right away without allocating intermediate tasks.
+     */
+    private boolean canRunInline(Executor executor, CancellationToken ct) {
+        return executor == IMMEDIATE_EXECUTOR
+                && ct == null
+                && deadline == null
+                && priority == null
+                && getTask().isCompleted()
+                && INLINE_DEPTH.get()[0] < MAX_INLINE_DEPTH;
+    }
+
+    private <TContinuationResult> Promise<TContinuationResult> runInline(
+            final ContinuationPromise<TResult, Promise<TContinuationResult>> continuation) {
+        int[] depth = INLINE_DEPTH.get();
+        depth[0]++;
+        try {
+            // Behave like the asynchronous path: start a lazy result, and drop its deadline and priority.
+            Promise<TContinuationResult> next = continuation.then(this);
+            Task<TContinuationResult> task = next.getTask();
+            return next.deadline == null && next.priority == null ? next : Promise.of(task);
+        } catch (CancellationException e) {
+            return Promise.cancelled();
+        } catch (Exception e) {
+            return Promise.reject(e);
+        } finally {
+            depth[0]--;
+        }
+    }
+
+    private <TContinuationResult> Promise<TContinuationResult> runInlineReturn(
+            final ContinuationPromise<TResult, TContinuationResult> continuation) {
+        int[] depth = INLINE_DEPTH.get();
+        depth[0]++;
+        try {
+            return Promise.resolve(continuation.then(this));
+        } catch (CancellationException e) {
+            return Promise.cancelled();
+        } catch (Exception e) {
+            return Promise.reject(e);
+        } finally {
+            depth[0]--;
+        }
+    }
+
+    /**
+     * Completes with the outcome of the inner task. Unlike Bolts' own unwrapping (which propagates through nested
+     * immediate continuations), the outcome is propagated through the trampoline, so that the completion of a
+     * long chain of nested promises unwinds iteratively instead of recursively.
+     */
+    private static <TContinuationResult> Task<TContinuationResult> trampoline(
+            Task<Task<TContinuationResult>> task) {
+        TaskCompletionSource<TContinuationResult> tcs = new TaskCompletionSource<>();
+        task.continueWith(outer -> {
+            if (outer.isCancelled()) {
+                tcs.trySetCancelled();
+            } else if (outer.isFaulted()) {
+                tcs.trySetError(outer.getError());
+            } else {
+                outer.getResult().continueWith(inner -> Tasks.trySetFrom(tcs, inner), TRAMPOLINE_EXECUTOR);
+            }
+            return null;
+        }, TRAMPOLINE_EXECUTOR);
+        return tcs.getTask();
+    }
+
+    /**
+     * Returns this faulted or cancelled promise as the outcome of a skipped continuation.
+     */
+    @SuppressWarnings("unchecked")
+    private <TContinuationResult> Promise<TContinuationResult> propagate() {
+        return (Promise<TContinuationResult>) this;
+    }
+
+    private <TContinuationResult> Promise<TContinuationResult> derive(Task<TContinuationResult> task) {
+        if (deadline == null && priority == null) {
+            return Promise.of(task);
+        }
+
+        return new Promise<>(deadline == null ? task : bind(task, deadline, null), deadline, priority);
+    }
+
+    /**
+     * Derives the result of a recovery handler (always, except). It is not bound to the deadline as a whole: this
+     * promise already rejects when the deadline expires, and the handler must be able to recover from that.
+     */
+    private <TContinuationResult> Promise<TContinuationResult> deriveRecovery(Task<TContinuationResult> task) {
+        if (deadline == null && priority == null) {
+            return Promise.of(task);
+        }
+
+        return new Promise<>(task, deadline, priority);
+    }
+
+    /**
+     * Binds the work of a recovery handler to the deadline, unless the handler runs because it has expired.
+     */
+    private <TContinuationResult> Task<TContinuationResult> bindRecovery(Task<TContinuationResult> task) {
+        return deadline == null || deadline.isExpired() ? task : bind(task, deadline, null);
+    }
+
+    /**
+     * Runs continuations of a promise with a priority in the matching lane of a priority executor.
+     */
+    private Executor laneOf(Executor executor) {
+        return priority != null && executor instanceof PriorityExecutor
+                ? ((PriorityExecutor) executor).lane(priority)
+                : executor;
+    }
+
+    private static void cancelFuture(CompletionStage<?> stage) {
+        if (stage instanceof Future) {
+            ((Future<?>) stage).cancel(false);
+        }
+    }
+
+    private static <TResult> Task<TResult> bind(Task<TResult> task, Deadline deadline, CancellationTokenSource cts) {
+        if (task.isCompleted()) {
+            return task;
+        }
+
+        TaskCompletionSource<TResult> tcs = new TaskCompletionSource<>();
+        Runnable onExpired = () -> {
+            if (tcs.trySetError(new TimeoutException("Deadline exceeded")) && cts != null) {
+                cts.cancel();
+            }
+        };
+        deadline.register(onExpired);
+
+        task.continueWith(t -> {
+            deadline.unregister(onExpired);
+            Tasks.trySetFrom(tcs, t);
+            return null;
+        });
+
+        return tcs.getTask();
+    }
+
+    /**
+     * Returns the underlying task, starting the promise if it is lazy.
+     */
+    public Task<TResult> getTask() {
+        if (starter != null) {
+            Runnable start = STARTER.getAndSet(this, null);
+            if (start != null) {
+                start.run();
+            }
+        }
+        return task;
+    }
+
     public boolean isCompleted() {
-        return getTask().isCompleted();
+        return task.isCompleted();
     }
 
     public boolean isCancelled() {
-        return getTask().isCancelled();
+        return task.isCancelled();
     }
 
     public boolean isFaulted() {
-        return getTask().isFaulted();
+        return task.isFaulted();
     }
 
     public boolean isSuccessful() {
@@ -239,11 +982,11 @@ public class Promise<TResult> {
     }
 
     public TResult getResult() {
-        return getTask().getResult();
+        return task.getResult();
     }
 
     public Exception getError() {
-        return getTask().getError();
+        return task.getError();
     }
 
 }
@@ -0,0 +1,170 @@
+package bolts;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Merges individual keyed loads into batch loads, similar to DataLoader.
+ *
+ * Keys passed to {@link #load(Object)} are collected until {@code maxBatchSize} keys are pending, or until
+ * {@code windowMillis} have passed since the first pending key, and are then loaded with a single call to the
+ * batch function. Concurrent loads of the same pending key share one promise.
+ *
+ * With Retrofit, the batch function is typically a batch service method, for example:
+ *
+ * <pre>
+ * PromiseBatcher&lt;String, User&gt; users = PromiseBatcher.create(
+ *         ids -&gt; service.getUsers(ids), User::getId, 10, 50);
+ * Promise&lt;User&gt; user = users.load("42");
+ * </pre>
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class PromiseBatcher<K, V> {
+
+    private final Function<List<K>, Promise<Map<K, V>>> batchFunction;
+    private final long windowMillis;
+    private final int maxBatchSize;
+
+    // Guarded by this:
+    private Map<K, TaskCompletionSource<V>> pending = new LinkedHashMap<>();
+    private PromiseScheduler.Cancellable timer;
+
+    private PromiseBatcher(Function<List<K>, Promise<Map<K, V>>> batchFunction, long windowMillis, int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+
+        this.batchFunction = batchFunction;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Creates a batcher for a batch function that resolves with a value for each key it found. Keys missing from
+     * the map resolve with null.
+     */
+    public static <K, V> PromiseBatcher<K, V> create(
+            Function<List<K>, Promise<Map<K, V>>> batchFunction,
+            long windowMillis,
+            int maxBatchSize) {
+        return new PromiseBatcher<>(batchFunction, windowMillis, maxBatchSize);
+    }
+
+    /**
+     * Creates a batcher for a batch function that resolves with a list of values (in any order), using the key
+     * function to match values to keys. Keys without a value resolve with null.
+     */
+    public static <K, V> PromiseBatcher<K, V> create(
+            Function<List<K>, Promise<List<V>>> batchFunction,
+            Function<V, K> keyFunction,
+            long windowMillis,
+            int maxBatchSize) {
+        return new PromiseBatcher<>(keys -> batchFunction.apply(keys).thenReturn(p -> {
+            Map<K, V> values = new LinkedHashMap<>();
+            for (V value : p.getResult()) {
+                values.put(keyFunction.apply(value), value);
+            }
+            return values;
+        }), windowMillis, maxBatchSize);
+    }
+
+    public Promise<V> load(K key) {
+        Objects.requireNonNull(key);
+
+        Map<K, TaskCompletionSource<V>> batch = null;
+        TaskCompletionSource<V> tcs;
+
+        synchronized (this) {
+            tcs = pending.get(key);
+            if (tcs != null) {
+                return Promise.of(tcs.getTask());
+            }
+
+            tcs = new TaskCompletionSource<>();
+            pending.put(key, tcs);
+
+            if (pending.size() >= maxBatchSize) {
+                batch = takePending();
+            } else if (pending.size() == 1) {
+                timer = Promise.getScheduler().schedule(this::flush, windowMillis);
+            }
+        }
+
+        if (batch != null) {
+            dispatch(batch);
+        }
+
+        return Promise.of(tcs.getTask());
+    }
+
+    /**
+     * Dispatches the pending keys right away, without waiting for the window to pass.
+     */
+    public void flush() {
+        Map<K, TaskCompletionSource<V>> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = takePending();
+        }
+
+        dispatch(batch);
+    }
+
+    private Map<K, TaskCompletionSource<V>> takePending() {
+        Map<K, TaskCompletionSource<V>> batch = pending;
+        pending = new LinkedHashMap<>();
+
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+
+        return batch;
+    }
+
+    private void dispatch(Map<K, TaskCompletionSource<V>> batch) {
+        Promise<Map<K, V>> promise;
+        try {
+            promise = Objects.requireNonNull(batchFunction.apply(new ArrayList<>(batch.keySet())));
+        } catch (Exception e) {
+            promise = Promise.reject(e);
+        }
+
+        promise.getTask().continueWith(task -> {
+            try {
+                if (task.isCancelled()) {
+                    for (TaskCompletionSource<V> tcs : batch.values()) {
+                        tcs.trySetCancelled();
+                    }
+                } else if (task.isFaulted()) {
+                    fail(batch, task.getError());
+                } else {
+                    Map<K, V> values = Objects.requireNonNull(task.getResult(), "batch function resolved with null");
+                    for (Map.Entry<K, TaskCompletionSource<V>> entry : batch.entrySet()) {
+                        entry.getValue().trySetResult(values.get(entry.getKey()));
+                    }
+                }
+            } catch (Throwable t) {
+                // Keys still pending would otherwise never complete.
+                fail(batch, t instanceof Exception ? (Exception) t : new ExecutionException(t));
+            }
+            return null;
+        });
+    }
+
+    private static <K, V> void fail(Map<K, TaskCompletionSource<V>> batch, Exception error) {
+        for (TaskCompletionSource<V> tcs : batch.values()) {
+            tcs.trySetError(error);
+        }
+    }
+
+}
@@ -3,19 +3,26 @@ package bolts;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.concurrent.CancellationException;
+import java.util.Objects;
 
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import retrofit2.Call;
 import retrofit2.CallAdapter;
-import retrofit2.Callback;
-import retrofit2.HttpException;
 import retrofit2.Response;
 import retrofit2.Retrofit;
 
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
 public class PromiseCallAdapterFactory extends CallAdapter.Factory {
 
+    private final CallAdapterOptions options;
+
     public static PromiseCallAdapterFactory create() {
-        return new PromiseCallAdapterFactory();
+        return new PromiseCallAdapterFactory(CallAdapterOptions.defaults());
+    }
+
+    public static PromiseCallAdapterFactory create(CallAdapterOptions options) {
+        return new PromiseCallAdapterFactory(Objects.requireNonNull(options));
     }
 
     @Override
@@ -32,7 +39,7 @@ public class PromiseCallAdapterFactory extends CallAdapter.Factory {
 
         if (getRawType(innerType) != Response.class) {
             // Generic type is not Response<T>. Use it for body-only adapter.
-            return new BodyCallAdapter<>(innerType);
+            return new BodyCallAdapter<>(innerType, CallHandlers.create(options, annotations, innerType));
         }
 
         // Generic type is Response<T>. Extract T and create the Response version of the adapter.
@@ -41,14 +48,16 @@ public class PromiseCallAdapterFactory extends CallAdapter.Factory {
                     "Response must be parameterized as Response<Foo> or Response<? extends Foo>");
         }
         Type responseType = getParameterUpperBound(0, (ParameterizedType) innerType);
-        return new ResponseCallAdapter<>(responseType);
+        return new ResponseCallAdapter<>(responseType, CallHandlers.create(options, annotations, responseType));
     }
 
     private static final class BodyCallAdapter<R> implements CallAdapter<R, Promise<R>> {
         private final Type responseType;
+        private final CallHandler<R> handler;
 
-        BodyCallAdapter(Type responseType) {
+        BodyCallAdapter(Type responseType, CallHandler<R> handler) {
             this.responseType = responseType;
+            this.handler = handler;
         }
 
         @Override
@@ -58,43 +67,17 @@ public class PromiseCallAdapterFactory extends CallAdapter.Factory {
 
         @Override
         public Promise<R> adapt(final Call<R> call) {
-            final TaskCompletionSource<R> tcs = new TaskCompletionSource<>();
-
-            call.enqueue(new Callback<R>() {
-                @Override
-                public void onResponse(Call<R> call, Response<R> response) {
-                    setResponseResult(response, tcs);
-                }
-
-                @Override
-                public void onFailure(Call<R> call, Throwable t) {
-                    tcs.setError(new Exception(t));
-                }
-            });
-
-            return Promise.of(tcs.getTask());
-        }
-
-        private void setResponseResult(Response<R> response, TaskCompletionSource<R> tcs) {
-            try {
-                if (response.isSuccessful()) {
-                    tcs.setResult(response.body());
-                } else {
-                    tcs.setError(new HttpException(response));
-                }
-            } catch (CancellationException e) {
-                tcs.setCancelled();
-            } catch (Exception e) {
-                tcs.setError(e);
-            }
+            return Promise.of(CallTasks.body(handler.handle(call, CallTasks.tokenOf(call))));
         }
     }
 
     private static final class ResponseCallAdapter<R> implements CallAdapter<R, Promise<Response<R>>> {
         private final Type responseType;
+        private final CallHandler<R> handler;
 
-        ResponseCallAdapter(Type responseType) {
+        ResponseCallAdapter(Type responseType, CallHandler<R> handler) {
             this.responseType = responseType;
+            this.handler = handler;
         }
 
         @Override
@@ -104,31 +87,7 @@ public class PromiseCallAdapterFactory extends CallAdapter.Factory {
 
         @Override
         public Promise<Response<R>> adapt(final Call<R> call) {
-            final TaskCompletionSource<Response<R>> tcs = new TaskCompletionSource<>();
-
-            call.enqueue(new Callback<R>() {
-                @Override
-                public void onResponse(Call<R> call, Response<R> response) {
-                    setResultResponse(response, tcs);
-                }
-
-                @Override
-                public void onFailure(Call<R> call, Throwable t) {
-                    tcs.setError(new Exception(t));
-                }
-            });
-
-            return Promise.of(tcs.getTask());
-        }
-
-        private void setResultResponse(Response<R> response, TaskCompletionSource<Response<R>> tcs) {
-            try {
-                tcs.setResult(response);
-            } catch (CancellationException e) {
-                tcs.setCancelled();
-            } catch (Exception e) {
-                tcs.setError(e);
-            }
+            return Promise.of(handler.handle(call, CallTasks.tokenOf(call)));
         }
     }
 
@@ -0,0 +1,15 @@
+package bolts;
+
+/**
+ * Receives promise lifecycle events, once installed using {@link Promise#setInstrumentation(PromiseInstrumentation)}.
+ *
+ * Callbacks run synchronously on the thread creating or completing the promise, so implementations must be
+ * thread-safe and cheap. {@link PromiseMetrics} is a ready-made implementation.
+ */
+public interface PromiseInstrumentation {
+
+    void onCreated(Promise<?> promise);
+
+    void onCompleted(Promise<?> promise);
+
+}
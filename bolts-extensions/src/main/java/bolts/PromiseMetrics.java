@@ -0,0 +1,67 @@
+package bolts;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts promises by outcome using striped counters, which keeps the overhead low enough to stay enabled in
+ * production.
+ *
+ * <pre>{@code
+ * PromiseMetrics metrics = PromiseMetrics.create();
+ * Promise.setInstrumentation(metrics);
+ * }</pre>
+ */
+public final class PromiseMetrics implements PromiseInstrumentation {
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder faulted = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+
+    private PromiseMetrics() {
+    }
+
+    public static PromiseMetrics create() {
+        return new PromiseMetrics();
+    }
+
+    @Override
+    public void onCreated(Promise<?> promise) {
+        created.increment();
+    }
+
+    @Override
+    public void onCompleted(Promise<?> promise) {
+        if (promise.isCancelled()) {
+            cancelled.increment();
+        } else if (promise.isFaulted()) {
+            faulted.increment();
+        } else {
+            succeeded.increment();
+        }
+    }
+
+    public long getCreatedCount() {
+        return created.sum();
+    }
+
+    public long getSucceededCount() {
+        return succeeded.sum();
+    }
+
+    public long getFaultedCount() {
+        return faulted.sum();
+    }
+
+    public long getCancelledCount() {
+        return cancelled.sum();
+    }
+
+    /**
+     * Returns the number of promises created but not yet completed.
+     */
+    public long getPendingCount() {
+        return Math.max(0, created.sum() - succeeded.sum() - faulted.sum() - cancelled.sum());
+    }
+
+}
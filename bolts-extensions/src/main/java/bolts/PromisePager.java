@@ -0,0 +1,216 @@
+package bolts;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Pages through a cursor-based collection, fetching up to a fixed number of pages ahead of the consumer so that
+ * network latency overlaps with processing.
+ *
+ * Each page is fetched with the cursor extracted from the previous one, so fetches run one at a time. At most
+ * {@code prefetch} pages are buffered (including the one being fetched), and closing the pager cancels the
+ * token passed to outstanding fetches.
+ *
+ * <pre>{@code
+ * interface ItemService {
+ *     @GET("/items")
+ *     Promise<Page<Item>> getItems(@Query("cursor") String cursor, @Tag CancellationToken ct);
+ * }
+ *
+ * PromisePager<Page<Item>> pager = PromisePager.create(service::getItems, Page::getNextCursor, null, 2);
+ * pager.forEach(p -> process(p.getResult()));
+ * }</pre>
+ */
+public final class PromisePager<TPage> implements AutoCloseable {
+
+    private final Fetcher<?, TPage> fetcher;
+    private final int prefetch;
+    private final CancellationTokenSource cts = new CancellationTokenSource();
+
+    // Guarded by this:
+    private final Deque<Promise<TPage>> buffered = new ArrayDeque<>();
+    private Promise<TPage> inFlight;
+    private boolean fetching;
+    private boolean exhausted;
+    private boolean closed;
+
+    private PromisePager(Fetcher<?, TPage> fetcher, int prefetch) {
+        if (prefetch < 1) {
+            throw new IllegalArgumentException("prefetch must be positive");
+        }
+
+        this.fetcher = fetcher;
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Creates a pager starting at the given cursor (which may be null for the first page). Pages are fetched
+     * until the cursor function returns null.
+     */
+    public static <TPage, TCursor> PromisePager<TPage> create(
+            BiFunction<TCursor, CancellationToken, Promise<TPage>> fetch,
+            Function<TPage, TCursor> nextCursor,
+            TCursor firstCursor,
+            int prefetch) {
+        return new PromisePager<>(new Fetcher<>(fetch, nextCursor, firstCursor), prefetch);
+    }
+
+    /**
+     * Returns the next page, or a promise resolving with null once all pages have been returned. A failed fetch
+     * is returned in order and ends the sequence. Pages are expected not to be null.
+     */
+    public Promise<TPage> next() {
+        fill();
+
+        Promise<TPage> page;
+        Promise<TPage> pending;
+        synchronized (this) {
+            if (closed) {
+                return Promise.cancelled();
+            }
+            page = buffered.poll();
+            pending = fetching ? inFlight : null;
+        }
+
+        if (page == null) {
+            // The page being fetched was already returned; whether another one follows is known once it completes.
+            return pending == null ? Promise.resolve() : pending.always(p -> next());
+        }
+
+        fill();
+        return page;
+    }
+
+    /**
+     * Passes every page to the callback, waiting for the promise it returns before moving on to the next page.
+     * The pager is closed once the callback rejects or the pages run out.
+     */
+    public Promise<Void> forEach(ContinuationPromise<TPage, Promise<Void>> callback) {
+        TaskCompletionSource<Void> tcs = new TaskCompletionSource<>();
+        forEach(callback, tcs);
+        return Promise.of(tcs.getTask());
+    }
+
+    private void forEach(
+            final ContinuationPromise<TPage, Promise<Void>> callback, final TaskCompletionSource<Void> tcs) {
+        next().then(p -> {
+            if (p.getResult() == null) {
+                return Promise.resolve(false);
+            }
+
+            return callback.then(p).thenReturn(done -> true);
+        }).alwaysReturn(p -> {
+            if (p.isSuccessful() && p.getResult()) {
+                forEach(callback, tcs);
+                return null;
+            }
+
+            close();
+            if (p.isCancelled()) {
+                tcs.trySetCancelled();
+            } else if (p.isFaulted()) {
+                tcs.trySetError(p.getError());
+            } else {
+                tcs.trySetResult(null);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            buffered.clear();
+        }
+
+        cts.cancel();
+    }
+
+    /**
+     * Starts fetching the next page if there is room in the buffer. Pages that complete synchronously start the
+     * following fetch from their completion, up to the prefetch limit.
+     */
+    private void fill() {
+        final TaskCompletionSource<TPage> tcs;
+        synchronized (this) {
+            if (closed || fetching || exhausted || buffered.size() >= prefetch) {
+                return;
+            }
+
+            fetching = true;
+            tcs = new TaskCompletionSource<>();
+            inFlight = Promise.of(tcs.getTask());
+            buffered.add(inFlight);
+        }
+
+        Promise<TPage> page;
+        try {
+            page = fetcher.fetch(cts.getToken());
+        } catch (RuntimeException e) {
+            page = Promise.reject(e);
+        }
+
+        page.getTask().continueWith(task -> {
+            boolean last = true;
+            Exception error = null;
+            if (!task.isFaulted() && !task.isCancelled()) {
+                try {
+                    last = !fetcher.advance(task.getResult());
+                } catch (RuntimeException e) {
+                    error = e;
+                }
+            }
+
+            // Update the state first, so that callers waiting on the page see whether another one follows.
+            synchronized (this) {
+                fetching = false;
+                exhausted = last;
+            }
+
+            if (error != null) {
+                tcs.trySetError(error);
+            } else {
+                Tasks.trySetFrom(tcs, task);
+            }
+
+            fill();
+            return null;
+        });
+    }
+
+    /**
+     * Holds the cursor for the next fetch. Only used by the single fetch in flight.
+     */
+    private static final class Fetcher<TCursor, TPage> {
+        private final BiFunction<TCursor, CancellationToken, Promise<TPage>> fetch;
+        private final Function<TPage, TCursor> nextCursor;
+        private TCursor cursor;
+
+        Fetcher(BiFunction<TCursor, CancellationToken, Promise<TPage>> fetch,
+                Function<TPage, TCursor> nextCursor,
+                TCursor firstCursor) {
+            this.fetch = fetch;
+            this.nextCursor = nextCursor;
+            this.cursor = firstCursor;
+        }
+
+        Promise<TPage> fetch(CancellationToken ct) {
+            return fetch.apply(cursor, ct);
+        }
+
+        /**
+         * Moves to the cursor of the page after the given one. Returns false if there are no more pages.
+         */
+        boolean advance(TPage page) {
+            cursor = nextCursor.apply(page);
+            return cursor != null;
+        }
+    }
+
+}
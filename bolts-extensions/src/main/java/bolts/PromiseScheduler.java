@@ -0,0 +1,64 @@
+package bolts;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules delayed actions for time-based promises such as {@link Promise#sleep(long)}.
+ *
+ * All delays share a single scheduler instead of a thread per promise. A custom implementation
+ * (e.g. one driven by a virtual clock) can be installed using {@link Promise#setScheduler(PromiseScheduler)}.
+ *
+ * @see Promise
+ */
+public interface PromiseScheduler {
+
+    /**
+     * Returns the current time of this scheduler's clock in milliseconds.
+     */
+    long now();
+
+    /**
+     * Runs the given action once after the given delay. The returned handle can be used to remove
+     * the action before it runs.
+     */
+    Cancellable schedule(Runnable action, long delayMillis);
+
+    interface Cancellable {
+        /**
+         * Removes the pending action. Returns false if the action has already run or was cancelled.
+         */
+        boolean cancel();
+    }
+
+    /**
+     * Returns a scheduler backed by the given executor service and the system clock.
+     */
+    static PromiseScheduler from(final ScheduledExecutorService executor) {
+        return from(executor, Runnable::run);
+    }
+
+    /**
+     * Returns a scheduler backed by the given executor service and the system clock, which runs due actions on
+     * the given action executor. Handing actions off keeps a slow action (or a continuation it completes inline)
+     * from delaying every other timer.
+     */
+    static PromiseScheduler from(final ScheduledExecutorService executor, final Executor actionExecutor) {
+        return new PromiseScheduler() {
+            @Override
+            public long now() {
+                return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+            }
+
+            @Override
+            public Cancellable schedule(Runnable action, long delayMillis) {
+                final ScheduledFuture<?> future = executor.schedule(
+                        () -> actionExecutor.execute(action), delayMillis, TimeUnit.MILLISECONDS);
+                return () -> future.cancel(false);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,32 @@
+package bolts;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * Holds the default {@link PromiseScheduler}: a single daemon thread shared by all promises.
+ * Cancelled timers are removed from its queue immediately, and due actions run on the background executor so
+ * that the timer thread never runs continuations.
+ */
+final class PromiseSchedulers {
+
+    private static final PromiseScheduler DEFAULT = createDefault();
+
+    private PromiseSchedulers() {
+    }
+
+    static PromiseScheduler getDefault() {
+        return DEFAULT;
+    }
+
+    private static PromiseScheduler createDefault() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("promise-scheduler-%d")
+                .build());
+        executor.setRemoveOnCancelPolicy(true);
+        return PromiseScheduler.from(executor, BoltsExecutors.background());
+    }
+
+}
@@ -0,0 +1,34 @@
+package bolts;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Describes the outbound rate limit of a service method: a token bucket refilled at {@code permitsPerSecond},
+ * holding at most {@code burst} tokens. Calls that find the bucket empty wait in a queue of at most
+ * {@code maxQueue} calls, and are rejected with a {@link java.util.concurrent.RejectedExecutionException} when the
+ * queue is full. Waiting never blocks the calling thread.
+ *
+ * @see CallPolicy.RateLimit
+ */
+@Getter
+@Builder(toBuilder = true)
+public final class RateLimitPolicy {
+
+    private final double permitsPerSecond;
+
+    @Builder.Default
+    private final int burst = 1;
+
+    @Builder.Default
+    private final int maxQueue = 100;
+
+    static RateLimitPolicy of(CallPolicy.RateLimit annotation) {
+        return builder()
+                .permitsPerSecond(annotation.permitsPerSecond())
+                .burst(annotation.burst())
+                .maxQueue(annotation.maxQueue())
+                .build();
+    }
+
+}
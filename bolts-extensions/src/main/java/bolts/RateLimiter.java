@@ -0,0 +1,71 @@
+package bolts;
+
+/**
+ * A non-blocking token bucket. Waiting callers are granted permits by a single timer on the shared
+ * {@link PromiseScheduler}, scheduled for when the next token becomes available.
+ *
+ * @see RateLimitPolicy
+ */
+final class RateLimiter extends Permits {
+
+    private final double permitsPerMilli;
+    private final double burst;
+
+    // Guarded by this:
+    private double tokens;
+    private long refilledAt;
+    private boolean drainScheduled;
+
+    RateLimiter(RateLimitPolicy policy) {
+        super(policy.getMaxQueue());
+        if (!(policy.getPermitsPerSecond() > 0)) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+        }
+
+        this.permitsPerMilli = policy.getPermitsPerSecond() / 1000;
+        this.burst = Math.max(1, policy.getBurst());
+        this.tokens = burst;
+        this.refilledAt = Promise.getScheduler().now();
+    }
+
+    @Override
+    boolean tryTake() {
+        long now = Promise.getScheduler().now();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * permitsPerMilli);
+        refilledAt = now;
+
+        if (tokens < 1) {
+            return false;
+        }
+
+        tokens -= 1;
+        return true;
+    }
+
+    @Override
+    synchronized void giveBack() {
+        tokens = Math.min(burst, tokens + 1);
+    }
+
+    @Override
+    void onQueued() {
+        if (drainScheduled) {
+            return;
+        }
+
+        drainScheduled = true;
+        long delay = (long) Math.ceil((1 - tokens) / permitsPerMilli);
+        Promise.getScheduler().schedule(() -> {
+            synchronized (this) {
+                drainScheduled = false;
+            }
+            drain();
+        }, Math.max(1, delay));
+    }
+
+    @Override
+    String rejectionMessage() {
+        return "Rate limit exceeded";
+    }
+
+}
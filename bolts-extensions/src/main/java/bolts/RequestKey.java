@@ -0,0 +1,20 @@
+package bolts;
+
+import lombok.Value;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+
+/**
+ * Identifies equivalent requests by their HTTP method, URL and headers.
+ */
+@Value
+class RequestKey {
+    String method;
+    HttpUrl url;
+    Headers headers;
+
+    static RequestKey of(Request request) {
+        return new RequestKey(request.method(), request.url(), request.headers());
+    }
+}
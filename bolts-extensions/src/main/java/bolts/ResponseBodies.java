@@ -0,0 +1,117 @@
+package bolts;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * Consumes streamed response bodies incrementally, so that memory use stays flat regardless of the size of the
+ * response. Service methods must be annotated with {@link retrofit2.http.Streaming}, in which case a
+ * {@code Promise<ResponseBody>} resolves as soon as the headers have arrived.
+ *
+ * <pre>{@code
+ * @Streaming
+ * @GET("/file")
+ * Promise<ResponseBody> download();
+ *
+ * service.download().then(p -> ResponseBodies.transferTo(p.getResult(), channel));
+ * }</pre>
+ *
+ * Reading blocks, so it runs on the given executor. The body is always closed once consumed, and cancelling the
+ * token closes it early.
+ */
+public final class ResponseBodies {
+
+    private static final int TRANSFER_BUFFER_SIZE = 64 * 1024;
+
+    private ResponseBodies() {
+    }
+
+    /**
+     * Receives the chunks of a body, one at a time. A chunk is only valid for the duration of the call.
+     */
+    public interface ChunkConsumer {
+        void accept(ByteBuffer chunk) throws Exception;
+    }
+
+    public static Promise<Long> transferTo(ResponseBody body, FileChannel channel) {
+        return transferTo(body, channel, Promise.BACKGROUND_EXECUTOR, null);
+    }
+
+    /**
+     * Writes the body to the channel at its current position, and resolves with the number of bytes written.
+     */
+    public static Promise<Long> transferTo(
+            ResponseBody body, final FileChannel channel, Executor executor, CancellationToken ct) {
+        return read(body, ByteBuffer.allocateDirect(TRANSFER_BUFFER_SIZE), chunk -> {
+            while (chunk.hasRemaining()) {
+                channel.write(chunk);
+            }
+        }, executor, ct);
+    }
+
+    public static Promise<Long> read(ResponseBody body, ByteBuffer buffer, ChunkConsumer consumer) {
+        return read(body, buffer, consumer, Promise.BACKGROUND_EXECUTOR, null);
+    }
+
+    /**
+     * Reads the body into the given buffer, passing every chunk to the consumer, and resolves with the number of
+     * bytes read. The same buffer is reused for every chunk.
+     */
+    public static Promise<Long> read(
+            final ResponseBody body,
+            final ByteBuffer buffer,
+            final ChunkConsumer consumer,
+            Executor executor,
+            final CancellationToken ct) {
+        if (ct != null && ct.isCancellationRequested()) {
+            body.close();
+            return Promise.cancelled();
+        }
+
+        final CancellationTokens.Registration registration = CancellationTokens.register(ct, body::close);
+
+        return Promise.of(Task.call(() -> {
+            try {
+                return readFully(body.source(), buffer, consumer, ct);
+            } catch (IOException e) {
+                if (ct != null && ct.isCancellationRequested()) {
+                    // Reading failed because the body was closed by the token.
+                    throw new CancellationException();
+                }
+                throw e;
+            } finally {
+                if (registration != null) {
+                    registration.release();
+                }
+                body.close();
+            }
+        }, executor));
+    }
+
+    private static long readFully(BufferedSource source, ByteBuffer buffer, ChunkConsumer consumer,
+                                  CancellationToken ct) throws Exception {
+        long total = 0;
+        buffer.clear();
+
+        int read;
+        while ((read = source.read(buffer)) != -1) {
+            if (ct != null && ct.isCancellationRequested()) {
+                throw new CancellationException();
+            }
+
+            total += read;
+            buffer.flip();
+            consumer.accept(buffer);
+            buffer.clear();
+        }
+
+        return total;
+    }
+
+}
@@ -0,0 +1,95 @@
+package bolts;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * A {@link CallHandler} that memoizes successful responses of GET requests.
+ *
+ * @see CachePolicy
+ */
+final class ResponseCache<R> implements CallHandler<R> {
+
+    private final CallHandler<R> next;
+    private final CachePolicy policy;
+    private final Cache<RequestKey, Entry<R>> cache;
+    private final Set<RequestKey> revalidating = ConcurrentHashMap.newKeySet();
+
+    ResponseCache(CallHandler<R> next, CachePolicy policy) {
+        this.next = next;
+        this.policy = policy;
+
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .ticker(new SchedulerTicker())
+                .expireAfterWrite(policy.getTtlMillis() + policy.getStaleWhileRevalidateMillis(), TimeUnit.MILLISECONDS);
+
+        if (policy.getWeigher() != null) {
+            builder.maximumWeight(policy.getMaximumWeight())
+                    .weigher((RequestKey key, Entry<R> entry) -> policy.getWeigher().applyAsInt(entry.response.body()));
+        } else {
+            builder.maximumSize(policy.getMaximumSize());
+        }
+
+        this.cache = builder.build();
+    }
+
+    @Override
+    public Task<Response<R>> handle(Call<R> call, CancellationToken ct) {
+        Request request = call.request();
+        if (!"GET".equals(request.method())) {
+            return next.handle(call, ct);
+        }
+
+        RequestKey key = RequestKey.of(request);
+        Entry<R> entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return fetch(call, key, ct);
+        }
+
+        long age = Promise.getScheduler().now() - entry.storedAt;
+        if (age >= policy.getTtlMillis() && revalidating.add(key)) {
+            // Serve the stale response, and refresh it in the background using the unused call.
+            fetch(call, key, null).continueWith(task -> revalidating.remove(key));
+        }
+
+        return Task.forResult(entry.response);
+    }
+
+    private Task<Response<R>> fetch(Call<R> call, RequestKey key, CancellationToken ct) {
+        return next.handle(call, ct).onSuccess(task -> {
+            Response<R> response = task.getResult();
+            if (response.isSuccessful()) {
+                cache.put(key, new Entry<>(response, Promise.getScheduler().now()));
+            }
+
+            return response;
+        });
+    }
+
+    private static final class Entry<R> {
+        private final Response<R> response;
+        private final long storedAt;
+
+        Entry(Response<R> response, long storedAt) {
+            this.response = response;
+            this.storedAt = storedAt;
+        }
+    }
+
+    private static final class SchedulerTicker extends Ticker {
+        @Override
+        public long read() {
+            return TimeUnit.MILLISECONDS.toNanos(Promise.getScheduler().now());
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+package bolts;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits retries to a fraction of the original calls, shared by every caller using it. This prevents retry
+ * storms, where a degraded backend receives several times its normal load from retries alone.
+ *
+ * Each original call deposits {@code retryRatio} tokens (up to a maximum balance) and each retry withdraws one.
+ * A budget starts with {@code minRetries} tokens so that retries are possible at low traffic.
+ *
+ * @see RetryPolicy
+ */
+public final class RetryBudget {
+
+    private static final long SCALE = 1000;
+
+    private final long deposit;
+    private final long maxBalance;
+    private final AtomicLong balance;
+
+    private RetryBudget(double retryRatio, int minRetries, int maxRetries) {
+        this.deposit = (long) (retryRatio * SCALE);
+        this.maxBalance = Math.max(minRetries, maxRetries) * SCALE;
+        this.balance = new AtomicLong(minRetries * SCALE);
+    }
+
+    public static RetryBudget create(double retryRatio, int minRetries) {
+        return new RetryBudget(retryRatio, minRetries, Math.max(minRetries, 100));
+    }
+
+    public static RetryBudget create(double retryRatio, int minRetries, int maxRetries) {
+        return new RetryBudget(retryRatio, minRetries, maxRetries);
+    }
+
+    void deposit() {
+        long current;
+        do {
+            current = balance.get();
+            if (current >= maxBalance) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(maxBalance, current + deposit)));
+    }
+
+    boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - SCALE));
+
+        return true;
+    }
+
+    public double getAvailableRetries() {
+        return (double) balance.get() / SCALE;
+    }
+
+}
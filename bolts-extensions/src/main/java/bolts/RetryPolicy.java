@@ -0,0 +1,96 @@
+package bolts;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Singular;
+
+/**
+ * Describes how failed promises or calls are retried: up to {@code maxAttempts} attempts in total, waiting an
+ * exponentially growing delay between attempts. With {@code jitter}, the actual delay is chosen uniformly
+ * between zero and the computed delay ("full jitter"), which spreads out retries of concurrent callers.
+ *
+ * Only errors that are instances of one of the {@code retryOn} classes (or are caused by one) are retried;
+ * if none are given, all errors are retried. An optional shared {@link RetryBudget} caps the overall retry rate.
+ *
+ * @see Promise#retrying(java.util.function.Supplier, RetryPolicy)
+ * @see CallPolicy.Retry
+ */
+@Getter
+@Builder(toBuilder = true)
+public final class RetryPolicy {
+
+    @Builder.Default
+    private final int maxAttempts = 3;
+
+    @Builder.Default
+    private final long initialDelayMillis = 100;
+
+    @Builder.Default
+    private final long maxDelayMillis = 10000;
+
+    @Builder.Default
+    private final double multiplier = 2;
+
+    @Builder.Default
+    private final boolean jitter = true;
+
+    @Singular("retryOn")
+    private final List<Class<? extends Exception>> retryableExceptions;
+
+    private final RetryBudget budget;
+
+    static RetryPolicy of(CallPolicy.Retry annotation) {
+        RetryPolicyBuilder builder = builder()
+                .maxAttempts(annotation.maxAttempts())
+                .initialDelayMillis(annotation.initialDelayMillis())
+                .maxDelayMillis(annotation.maxDelayMillis())
+                .multiplier(annotation.multiplier());
+        for (Class<? extends Exception> exceptionClass : annotation.retryOn()) {
+            builder.retryOn(exceptionClass);
+        }
+        return builder.build();
+    }
+
+    void onFirstAttempt() {
+        if (budget != null) {
+            budget.deposit();
+        }
+    }
+
+    /**
+     * Returns whether another attempt should be made after the given number of attempts failed with the given
+     * error. Withdraws from the budget if so.
+     */
+    boolean shouldRetry(int attempts, Exception error) {
+        if (attempts >= maxAttempts || !isRetryable(error)) {
+            return false;
+        }
+
+        return budget == null || budget.tryWithdraw();
+    }
+
+    long delayMillis(int attempts) {
+        double delay = Math.min(maxDelayMillis, initialDelayMillis * Math.pow(multiplier, attempts - 1));
+        return jitter ? (long) (ThreadLocalRandom.current().nextDouble() * delay) : (long) delay;
+    }
+
+    private boolean isRetryable(Exception error) {
+        if (retryableExceptions.isEmpty()) {
+            return true;
+        }
+
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            for (Class<? extends Exception> exceptionClass : retryableExceptions) {
+                if (exceptionClass.isInstance(t)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+}
@@ -0,0 +1,70 @@
+package bolts;
+
+import retrofit2.Call;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+/**
+ * A {@link CallHandler} that retries failed calls using clones of the original call.
+ *
+ * Unsuccessful HTTP responses are classified as {@link HttpException}s, so they are only retried if the
+ * policy retries those.
+ *
+ * @see RetryPolicy
+ */
+final class Retrying<R> implements CallHandler<R> {
+
+    private final CallHandler<R> next;
+    private final RetryPolicy policy;
+    private final boolean idempotentOnly;
+
+    Retrying(CallHandler<R> next, RetryPolicy policy, boolean idempotentOnly) {
+        this.next = next;
+        this.policy = policy;
+        this.idempotentOnly = idempotentOnly;
+    }
+
+    @Override
+    public Task<Response<R>> handle(Call<R> call, CancellationToken ct) {
+        if (idempotentOnly && !isIdempotent(call.request().method())) {
+            return next.handle(call, ct);
+        }
+
+        policy.onFirstAttempt();
+        return attempt(call, ct, 1);
+    }
+
+    private Task<Response<R>> attempt(Call<R> call, CancellationToken ct, int attempts) {
+        return next.handle(call, ct).continueWithTask(task -> {
+            Exception error = task.getError();
+            if (!task.isFaulted() && !task.isCancelled() && !task.getResult().isSuccessful()) {
+                error = new HttpException(task.getResult());
+            }
+
+            if (error == null || !policy.shouldRetry(attempts, error)) {
+                return task;
+            }
+
+            if (task.getResult() != null) {
+                CallTasks.discard(task.getResult());
+            }
+
+            return Promise.sleep(policy.delayMillis(attempts), ct).getTask()
+                    .onSuccessTask(t -> attempt(call.clone(), ct, attempts + 1));
+        });
+    }
+
+    private static boolean isIdempotent(String method) {
+        switch (method) {
+            case "GET":
+            case "HEAD":
+            case "OPTIONS":
+            case "PUT":
+            case "DELETE":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+package bolts;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * A {@link CallHandler} that shares one in-flight request between concurrent equivalent calls.
+ *
+ * @see CallPolicy.SingleFlight
+ */
+final class SingleFlight<R> implements CallHandler<R> {
+
+    private final CallHandler<R> next;
+    private final ConcurrentMap<RequestKey, Flight> flights = new ConcurrentHashMap<>();
+
+    SingleFlight(CallHandler<R> next) {
+        this.next = next;
+    }
+
+    @Override
+    public Task<Response<R>> handle(Call<R> call, CancellationToken ct) {
+        Request request = call.request();
+        if (request.body() != null) {
+            return next.handle(call, ct);
+        }
+
+        RequestKey key = RequestKey.of(request);
+        while (true) {
+            Flight flight = flights.get(key);
+            if (flight == null) {
+                Flight created = new Flight(key);
+                flight = flights.putIfAbsent(key, created);
+                if (flight == null) {
+                    flight = created;
+                    flight.start(call);
+                }
+            }
+
+            Task<Response<R>> task = flight.join(ct);
+            if (task != null) {
+                return task;
+            }
+
+            // The flight was abandoned by all of its callers in the meantime.
+            flights.remove(key, flight);
+        }
+    }
+
+    private final class Flight {
+        private final RequestKey key;
+        private final TaskCompletionSource<Response<R>> source = new TaskCompletionSource<>();
+        private final CancellationTokenSource cts = new CancellationTokenSource();
+        private int waiters;
+        private boolean abandoned;
+
+        Flight(RequestKey key) {
+            this.key = key;
+        }
+
+        void start(Call<R> call) {
+            next.handle(call, cts.getToken()).continueWith(task -> {
+                flights.remove(key, this);
+                Tasks.trySetFrom(source, task);
+                return null;
+            });
+        }
+
+        Task<Response<R>> join(CancellationToken ct) {
+            synchronized (this) {
+                if (abandoned) {
+                    return null;
+                }
+                waiters++;
+            }
+
+            if (ct == null) {
+                return source.getTask();
+            }
+
+            final TaskCompletionSource<Response<R>> tcs = new TaskCompletionSource<>();
+            final CancellationTokens.Registration registration = CancellationTokens.register(ct, () -> {
+                if (tcs.trySetCancelled()) {
+                    leave();
+                }
+            });
+
+            source.getTask().continueWith(task -> {
+                registration.release();
+                Tasks.trySetFrom(tcs, task);
+                return null;
+            });
+
+            return tcs.getTask();
+        }
+
+        private void leave() {
+            synchronized (this) {
+                if (--waiters > 0 || source.getTask().isCompleted()) {
+                    return;
+                }
+                abandoned = true;
+            }
+
+            flights.remove(key, this);
+            cts.cancel();
+        }
+    }
+
+}
@@ -0,0 +1,24 @@
+package bolts;
+
+/**
+ * Helpers for working with Bolts tasks.
+ */
+final class Tasks {
+
+    private Tasks() {
+    }
+
+    /**
+     * Completes the given source with the outcome of the given completed task.
+     */
+    static <TResult> boolean trySetFrom(TaskCompletionSource<TResult> tcs, Task<? extends TResult> task) {
+        if (task.isCancelled()) {
+            return tcs.trySetCancelled();
+        } else if (task.isFaulted()) {
+            return tcs.trySetError(task.getError());
+        } else {
+            return tcs.trySetResult(task.getResult());
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+package bolts;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs tasks on the calling thread, without nesting. A task submitted while another task is running on the same
+ * thread is queued and run after it returns, so chains of continuations run iteratively with a constant stack
+ * depth instead of recursing.
+ *
+ * @see Promise#TRAMPOLINE_EXECUTOR
+ */
+final class TrampolineExecutor implements Executor {
+
+    private final ThreadLocal<Deque<Runnable>> queue = new ThreadLocal<>();
+
+    @Override
+    public void execute(Runnable command) {
+        Deque<Runnable> pending = queue.get();
+        if (pending != null) {
+            pending.add(command);
+            return;
+        }
+
+        pending = new ArrayDeque<>();
+        queue.set(pending);
+
+        RuntimeException failure = null;
+        try {
+            for (Runnable next = command; next != null; next = pending.poll()) {
+                try {
+                    next.run();
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+        } finally {
+            queue.remove();
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+}
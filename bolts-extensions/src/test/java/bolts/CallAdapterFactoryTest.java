@@ -0,0 +1,516 @@
+package bolts;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import retrofit2.Converter;
+import retrofit2.HttpException;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.Streaming;
+import retrofit2.http.Tag;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CallAdapterFactoryTest {
+
+    interface Service {
+        @GET("/")
+        Promise<String> getPromise();
+
+        @GET("/")
+        Promise<Response<String>> getPromiseResponse();
+
+        @GET("/")
+        Promise<String> getPromise(@Tag CancellationToken ct);
+
+        @GET("/")
+        Task<String> getTask();
+
+        @GET("/")
+        CompletableFuture<String> getFuture();
+
+        @GET("/")
+        @Streaming
+        Promise<ResponseBody> getStreaming();
+
+        @GET("/")
+        CompletableFuture<Response<String>> getFutureResponse();
+
+        @GET("/")
+        Task<String> getTask(@Tag CancellationToken ct);
+
+        @GET("/")
+        @CallPolicy.SingleFlight
+        Promise<String> getSingleFlight(@Tag CancellationToken ct);
+
+        @GET("/")
+        @CallPolicy.Cache(ttlMillis = 1000, staleWhileRevalidateMillis = 1000)
+        Promise<String> getCached();
+
+        @GET("/")
+        @CallPolicy.Hedge(delayMillis = 100)
+        Promise<String> getHedged();
+
+        @GET("/")
+        @CallPolicy.Hedge(delayMillis = 100)
+        @CallPolicy.Bulkhead(maxConcurrent = 1, maxQueue = 1)
+        Promise<String> getHedgedBulkheaded(@Tag CancellationToken ct);
+
+        @GET("/")
+        @CallPolicy.Retry(initialDelayMillis = 10, retryOn = HttpException.class)
+        Task<String> getRetried();
+
+        @GET("/")
+        @CallPolicy.CircuitBreaker(windowSize = 4, minimumCalls = 4, openDurationMillis = 1000, halfOpenCalls = 1)
+        Promise<String> getProtected();
+
+        @GET("/")
+        @CallPolicy.Bulkhead(maxConcurrent = 1, maxQueue = 1)
+        Promise<String> getBulkheaded();
+
+        @GET("/")
+        @CallPolicy.RateLimit(permitsPerSecond = 10)
+        Promise<String> getRateLimited();
+    }
+
+    private MockWebServer server;
+    private Service service;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        service = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(new StringConverterFactory())
+                .addCallAdapterFactory(PromiseCallAdapterFactory.create())
+                .addCallAdapterFactory(TaskCallAdapterFactory.create())
+                .addCallAdapterFactory(CompletableFutureCallAdapterFactory.create())
+                .build()
+                .create(Service.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void testBodyAndResponse() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody("hello"));
+        server.enqueue(new MockResponse().setBody("world"));
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(new MockResponse().setResponseCode(404));
+
+        assertEquals("hello", Promise.await(service.getPromise()));
+
+        Task<String> task = service.getTask();
+        task.waitForCompletion();
+        assertEquals("world", task.getResult());
+
+        Promise<String> notFound = service.getPromise();
+        Promise.await(notFound);
+        assertTrue(notFound.getError() instanceof HttpException);
+
+        Response<String> response = Promise.await(service.getPromiseResponse());
+        assertEquals(404, response.code());
+    }
+
+    @Test
+    public void testCompletableFuture() throws Exception {
+        server.enqueue(new MockResponse().setBody("hello"));
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+
+        assertEquals("hello", service.getFuture().get(1, TimeUnit.SECONDS));
+        assertEquals(404, service.getFutureResponse().get(1, TimeUnit.SECONDS).code());
+
+        // Cancelling the future cancels the pending call.
+        CompletableFuture<String> future = service.getFuture();
+        server.takeRequest();
+        server.takeRequest();
+        server.takeRequest();
+        assertTrue(future.cancel(true));
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    public void testStreaming() throws Exception {
+        byte[] payload = new byte[256 * 1024];
+        new Random(42).nextBytes(payload);
+        for (int i = 0; i < 2; i++) {
+            server.enqueue(new MockResponse()
+                    .setBody(new Buffer().write(payload))
+                    .throttleBody(64 * 1024, 200, TimeUnit.MILLISECONDS));
+        }
+
+        // Resolves on headers, before the body has been sent.
+        ResponseBody body = Promise.await(service.getStreaming(), 500, TimeUnit.MILLISECONDS);
+
+        File file = File.createTempFile("bolts", ".bin");
+        try (FileChannel channel = new RandomAccessFile(file, "rw").getChannel()) {
+            long written = Promise.awaitOrThrow(ResponseBodies.transferTo(body, channel));
+            assertEquals(payload.length, written);
+            assertEquals(payload.length, channel.size());
+        } finally {
+            assertTrue(file.delete());
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        AtomicInteger chunks = new AtomicInteger();
+        Promise<Long> read = service.getStreaming()
+                .then(p -> ResponseBodies.read(p.getResult(), buffer, chunk -> {
+                    assertTrue(chunk.remaining() <= 1024);
+                    chunks.incrementAndGet();
+                }));
+        assertEquals(Long.valueOf(payload.length), Promise.awaitOrThrow(read));
+        assertTrue(chunks.get() >= payload.length / 1024);
+    }
+
+    @Test
+    public void testCancellation() throws InterruptedException {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+
+        CancellationTokenSource cts = new CancellationTokenSource();
+        Promise<String> promise = service.getPromise(cts.getToken());
+        Task<String> task = service.getTask(cts.getToken());
+        assertFalse(promise.isCompleted());
+        assertFalse(task.isCompleted());
+        // Wait for both requests to reach the server, so that neither is sent after the cancellation.
+        server.takeRequest();
+        server.takeRequest();
+
+        cts.cancel();
+        assertTrue(promise.getTask().waitForCompletion(1, TimeUnit.SECONDS));
+        assertTrue(promise.isCancelled());
+        assertTrue(task.waitForCompletion(1, TimeUnit.SECONDS));
+        assertTrue(task.isCancelled());
+
+        // Already cancelled tokens do not issue a request at all.
+        int requestCount = server.getRequestCount();
+        assertTrue(service.getPromise(cts.getToken()).isCancelled());
+        assertEquals(requestCount, server.getRequestCount());
+    }
+
+    @Test
+    public void testSingleFlight() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody("shared").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setBody("next"));
+
+        CancellationTokenSource cts = new CancellationTokenSource();
+        Promise<String> p1 = service.getSingleFlight(null);
+        Promise<String> p2 = service.getSingleFlight(cts.getToken());
+        Promise<String> p3 = service.getSingleFlight(null);
+
+        // Cancelling one caller does not affect the others.
+        cts.cancel();
+        assertTrue(p2.isCancelled());
+
+        assertEquals("shared", Promise.await(p1));
+        assertEquals("shared", Promise.await(p3));
+        assertEquals(1, server.getRequestCount());
+
+        // Completed flights are not reused.
+        assertEquals("next", Promise.await(service.getSingleFlight(null)));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void testSingleFlightCancellation() throws InterruptedException {
+        AtomicReference<Call> call = new AtomicReference<>();
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    call.set(chain.call());
+                    return chain.proceed(chain.request());
+                })
+                .build();
+        Service tracked = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(client)
+                .addConverterFactory(new StringConverterFactory())
+                .addCallAdapterFactory(PromiseCallAdapterFactory.create())
+                .build()
+                .create(Service.class);
+
+        server.enqueue(new MockResponse().setBody("shared").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+
+        // The shared call keeps running while at least one caller is still waiting for it.
+        CancellationTokenSource cts1 = new CancellationTokenSource();
+        CancellationTokenSource cts2 = new CancellationTokenSource();
+        CancellationTokenSource cts3 = new CancellationTokenSource();
+        Promise<String> p1 = tracked.getSingleFlight(cts1.getToken());
+        Promise<String> p2 = tracked.getSingleFlight(cts2.getToken());
+        Promise<String> p3 = tracked.getSingleFlight(cts3.getToken());
+        server.takeRequest();
+
+        cts1.cancel();
+        cts2.cancel();
+        assertTrue(p1.isCancelled());
+        assertTrue(p2.isCancelled());
+        assertFalse(call.get().isCanceled());
+        assertEquals("shared", Promise.await(p3));
+
+        // Once every caller has cancelled, so is the shared call.
+        CancellationTokenSource cts4 = new CancellationTokenSource();
+        CancellationTokenSource cts5 = new CancellationTokenSource();
+        Promise<String> p4 = tracked.getSingleFlight(cts4.getToken());
+        Promise<String> p5 = tracked.getSingleFlight(cts5.getToken());
+        server.takeRequest();
+
+        cts4.cancel();
+        assertFalse(call.get().isCanceled());
+        cts5.cancel();
+        assertTrue(p4.isCancelled());
+        assertTrue(p5.isCancelled());
+        assertTrue(call.get().isCanceled());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void testCache() throws InterruptedException {
+        VirtualScheduler scheduler = new VirtualScheduler();
+        Promise.setScheduler(scheduler);
+        try {
+            server.enqueue(new MockResponse().setBody("first"));
+            server.enqueue(new MockResponse().setBody("second"));
+            server.enqueue(new MockResponse().setBody("third"));
+
+            assertEquals("first", Promise.await(service.getCached()));
+            assertEquals("first", Promise.await(service.getCached()));
+            assertEquals(1, server.getRequestCount());
+
+            // Stale responses are served while a single request refreshes them.
+            scheduler.advance(1500);
+            assertEquals("first", Promise.await(service.getCached()));
+            assertEquals("first", Promise.await(service.getCached()));
+            server.takeRequest();
+            server.takeRequest();
+            String refreshed = "first";
+            for (int i = 0; i < 100 && refreshed.equals("first"); i++) {
+                Thread.sleep(10);
+                refreshed = Promise.await(service.getCached());
+            }
+            assertEquals("second", refreshed);
+            assertEquals(2, server.getRequestCount());
+
+            // Expired responses are fetched again.
+            scheduler.advance(2000);
+            assertEquals("third", Promise.await(service.getCached()));
+            assertEquals(3, server.getRequestCount());
+        } finally {
+            Promise.setScheduler(null);
+        }
+    }
+
+    @Test
+    public void testCacheValidation() {
+        try {
+            CachePolicy.builder().ttlMillis(1000).weigher(body -> 1).build();
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+
+        CachePolicy policy = CachePolicy.builder().ttlMillis(1000).maximumWeight(10).weigher(body -> 1).build();
+        assertEquals(10, policy.getMaximumWeight());
+        assertEquals(100, policy.getMaximumSize());
+    }
+
+    @Test
+    public void testHedging() throws InterruptedException {
+        VirtualScheduler scheduler = new VirtualScheduler();
+        Promise.setScheduler(scheduler);
+        try {
+            server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+            server.enqueue(new MockResponse().setBody("hedged"));
+
+            Promise<String> promise = service.getHedged();
+            server.takeRequest();
+            assertEquals(1, scheduler.pendingCount());
+
+            scheduler.advance(100);
+            assertEquals("hedged", Promise.await(promise));
+            assertEquals(2, server.getRequestCount());
+            assertEquals(0, scheduler.pendingCount());
+
+            // Cancelled races also cancel attempts still waiting for a bulkhead slot.
+            server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+            service.getHedgedBulkheaded(null);
+            server.takeRequest();
+
+            CancellationTokenSource cts = new CancellationTokenSource();
+            Promise<String> queued = service.getHedgedBulkheaded(cts.getToken());
+            cts.cancel();
+            assertTrue(queued.isCancelled());
+            assertFalse(service.getHedgedBulkheaded(null).isCompleted());
+        } finally {
+            Promise.setScheduler(null);
+        }
+    }
+
+    @Test
+    public void testRetry() throws InterruptedException {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("recovered"));
+
+        Task<String> task = service.getRetried();
+        task.waitForCompletion();
+        assertEquals("recovered", task.getResult());
+        assertEquals(3, server.getRequestCount());
+
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        Task<String> failed = service.getRetried();
+        failed.waitForCompletion();
+        assertTrue(failed.getError() instanceof HttpException);
+        assertEquals(6, server.getRequestCount());
+    }
+
+    @Test
+    public void testCircuitBreaker() throws InterruptedException {
+        VirtualScheduler scheduler = new VirtualScheduler();
+        Promise.setScheduler(scheduler);
+        try {
+            server.enqueue(new MockResponse().setBody("ok"));
+            server.enqueue(new MockResponse().setBody("ok"));
+            server.enqueue(new MockResponse().setResponseCode(500));
+            server.enqueue(new MockResponse().setResponseCode(503));
+            server.enqueue(new MockResponse().setBody("recovered"));
+
+            for (int i = 0; i < 4; i++) {
+                Promise.await(service.getProtected());
+            }
+            assertEquals(4, server.getRequestCount());
+
+            // Half of the calls failed, so the breaker is open and rejects without a request.
+            Promise<String> rejected = service.getProtected();
+            assertTrue(rejected.isFaulted());
+            assertTrue(rejected.getError() instanceof CircuitBreakerOpenException);
+            assertEquals(4, server.getRequestCount());
+
+            // After the open duration, a probe is let through and closes the breaker.
+            scheduler.advance(1000);
+            assertEquals("recovered", Promise.await(service.getProtected()));
+            assertEquals(5, server.getRequestCount());
+
+            server.enqueue(new MockResponse().setBody("closed"));
+            assertEquals("closed", Promise.await(service.getProtected()));
+        } finally {
+            Promise.setScheduler(null);
+        }
+    }
+
+    @Test
+    public void testBulkhead() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody("first").setHeadersDelay(200, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setBody("second"));
+
+        Promise<String> p1 = service.getBulkheaded();
+        Promise<String> p2 = service.getBulkheaded();
+        Promise<String> p3 = service.getBulkheaded();
+
+        assertTrue(p3.isFaulted());
+        assertTrue(p3.getError() instanceof RejectedExecutionException);
+        assertFalse(p2.isCompleted());
+
+        assertEquals("first", Promise.await(p1));
+        assertEquals("second", Promise.await(p2));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void testRateLimit() throws InterruptedException {
+        VirtualScheduler scheduler = new VirtualScheduler();
+        Promise.setScheduler(scheduler);
+        try {
+            server.enqueue(new MockResponse().setBody("first"));
+            server.enqueue(new MockResponse().setBody("second"));
+
+            Promise<String> p1 = service.getRateLimited();
+            Promise<String> p2 = service.getRateLimited();
+            assertEquals("first", Promise.await(p1));
+            assertFalse(p2.isCompleted());
+            assertEquals(1, server.getRequestCount());
+
+            scheduler.advance(100);
+            assertEquals("second", Promise.await(p2));
+            assertEquals(2, server.getRequestCount());
+        } finally {
+            Promise.setScheduler(null);
+        }
+    }
+
+    @Test
+    public void testMetrics() throws InterruptedException {
+        CallMetrics metrics = CallMetrics.create();
+        Service metered = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(new StringConverterFactory())
+                .addCallAdapterFactory(PromiseCallAdapterFactory.create(CallAdapterOptions.builder()
+                        .metrics(metrics)
+                        .build()))
+                .build()
+                .create(Service.class);
+
+        server.enqueue(new MockResponse().setBody("hello"));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+
+        Promise.await(metered.getPromise());
+        Promise.await(metered.getPromise());
+
+        CancellationTokenSource cts = new CancellationTokenSource();
+        Promise<String> pending = metered.getPromise(cts.getToken());
+        MethodMetrics method = metrics.get("Service.getPromise");
+        assertEquals(1, method.getInFlight());
+
+        cts.cancel();
+        Promise.await(pending);
+        assertEquals(0, method.getInFlight());
+        assertEquals(1, method.getSucceededCount());
+        assertEquals(1, method.getErrorCount());
+        assertEquals(1, method.getCancelledCount());
+        assertEquals(3, method.getLatency().getCount());
+        assertTrue(method.getLatency().getValueAtPercentile(50) > 0);
+    }
+
+    static final class StringConverterFactory extends Converter.Factory {
+        @Override
+        public Converter<ResponseBody, ?> responseBodyConverter(
+                Type type, Annotation[] annotations, Retrofit retrofit) {
+            return type == String.class ? (Converter<ResponseBody, String>) ResponseBody::string : null;
+        }
+    }
+
+}
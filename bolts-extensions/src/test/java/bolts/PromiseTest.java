@@ -2,13 +2,29 @@ package bolts;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class PromiseTest {
 
@@ -40,6 +56,47 @@ public class PromiseTest {
         assertNull(cancelled.getResult());
     }
 
+    @Test
+    public void testSharedPrimitives() {
+        assertSame(Promise.resolve(), Promise.resolve(null));
+        assertSame(Promise.cancelled(), Promise.cancelled());
+
+        // Continuations of completed promises do not wrap the promise they return.
+        Promise<String> next = Promise.resolve("next");
+        assertSame(next, Promise.resolve(1).then(p -> next));
+
+        Promise<Integer> rejected = Promise.reject(new IllegalArgumentException());
+        assertSame(rejected, rejected.then(p -> next));
+        assertSame(rejected, rejected.except(p -> Promise.resolve(0), IllegalStateException.class));
+    }
+
+    @Test
+    public void testDeepRecursion() throws InterruptedException {
+        Promise<Integer> loop = countDown(Promise.resolve(100000));
+        assertEquals(Integer.valueOf(0), Promise.await(loop));
+    }
+
+    private static Promise<Integer> countDown(Promise<Integer> promise) {
+        return promise.then(p -> p.getResult() == 0 ? p : countDown(Promise.resolve(p.getResult() - 1)));
+    }
+
+    @Test
+    public void testTrampoline() {
+        Thread caller = Thread.currentThread();
+        Promise<Integer> loop = trampolinedCountDown(Promise.resolve(100000), caller);
+
+        // The whole loop ran on the calling thread, without overflowing its stack.
+        assertTrue(loop.isSuccessful());
+        assertEquals(Integer.valueOf(0), loop.getResult());
+    }
+
+    private static Promise<Integer> trampolinedCountDown(Promise<Integer> promise, Thread caller) {
+        return promise.then(p -> {
+            assertSame(caller, Thread.currentThread());
+            return p.getResult() == 0 ? p : trampolinedCountDown(Promise.resolve(p.getResult() - 1), caller);
+        }, Promise.TRAMPOLINE_EXECUTOR);
+    }
+
     @Test
     public void testSleep() throws InterruptedException {
         long randomDelay = (long) (100 + 900 * Math.random());
@@ -53,6 +110,127 @@ public class PromiseTest {
 
         long timeTaken = System.currentTimeMillis() - startTime;
         assertTrue(timeTaken >= randomDelay);
+
+        // Continuations do not run on the timer thread, so they may wait for other timers.
+        Promise<Void> nested = Promise.sleep(10).thenReturn(p -> Promise.await(Promise.<Void>sleep(10)));
+        assertTrue(nested.getTask().waitForCompletion(5, TimeUnit.SECONDS));
+        assertTrue(nested.isSuccessful());
+    }
+
+    @Test
+    public void testSleepWithVirtualScheduler() {
+        VirtualScheduler scheduler = new VirtualScheduler();
+        Promise.setScheduler(scheduler);
+        try {
+            Promise<?> sleepPromise = Promise.sleep(1000);
+            assertEquals(1, scheduler.pendingCount());
+
+            scheduler.advance(999);
+            assertFalse(sleepPromise.isCompleted());
+
+            scheduler.advance(1);
+            assertTrue(sleepPromise.isSuccessful());
+            assertEquals(0, scheduler.pendingCount());
+        } finally {
+            Promise.setScheduler(null);
+        }
+    }
+
+    @Test
+    public void testSleepCancellation() {
+        VirtualScheduler scheduler = new VirtualScheduler();
+        Promise.setScheduler(scheduler);
+        try {
+            CancellationTokenSource cts = new CancellationTokenSource();
+            Promise<?> sleepPromise = Promise.sleep(1000, cts.getToken());
+            assertEquals(1, scheduler.pendingCount());
+
+            cts.cancel();
+            assertTrue(sleepPromise.isCancelled());
+            assertEquals(0, scheduler.pendingCount());
+
+            assertTrue(Promise.sleep(1000, cts.getToken()).isCancelled());
+            assertEquals(0, scheduler.pendingCount());
+        } finally {
+            Promise.setScheduler(null);
+        }
+    }
+
+    @Test
+    public void testTimeout() {
+        VirtualScheduler scheduler = new VirtualScheduler();
+        Promise.setScheduler(scheduler);
+        try {
+            CancellationTokenSource cts = new CancellationTokenSource();
+            TaskCompletionSource<String> slow = new TaskCompletionSource<>();
+            Promise<String> p1 = Promise.of(slow.getTask()).timeout(500, cts);
+            Promise<String> p2 = Promise.sleep(100).thenReturn(p -> "done").timeout(500);
+
+            scheduler.advance(100);
+            assertTrue(p2.isSuccessful());
+            assertEquals("done", p2.getResult());
+            assertFalse(p1.isCompleted());
+            // Only the timer of the pending promise is left.
+            assertEquals(1, scheduler.pendingCount());
+
+            scheduler.advance(400);
+            assertTrue(p1.isFaulted());
+            assertTrue(p1.getError() instanceof TimeoutException);
+            assertTrue(cts.isCancellationRequested());
+
+            // Late completion of the underlying task is ignored.
+            slow.setResult("late");
+            assertTrue(p1.getError() instanceof TimeoutException);
+        } finally {
+            Promise.setScheduler(null);
+        }
+    }
+
+    @Test
+    public void testDeadlinePropagation() {
+        VirtualScheduler scheduler = new VirtualScheduler();
+        Promise.setScheduler(scheduler);
+        try {
+            Deadline deadline = Deadline.after(1000);
+            Promise<String> chain = Promise.sleep(400)
+                    .withDeadline(deadline)
+                    .then(p -> Promise.sleep(400))
+                    .then(p -> Promise.sleep(400))
+                    .thenReturn(p -> "done");
+
+            assertEquals(deadline, chain.getDeadline());
+
+            scheduler.advance(800);
+            assertFalse(chain.isCompleted());
+            assertEquals(200, deadline.remainingMillis());
+
+            scheduler.advance(200);
+            assertTrue(deadline.isExpired());
+            assertTrue(chain.isFaulted());
+            assertTrue(chain.getError() instanceof TimeoutException);
+
+            Promise<String> withoutDeadline = chain.withDeadline(null)
+                    .except(p -> Promise.resolve("fallback"), TimeoutException.class);
+            assertTrue(withoutDeadline.isSuccessful());
+            assertEquals("fallback", withoutDeadline.getResult());
+
+            // Recovery handlers are not rejected again by the expired deadline.
+            Promise<String> recovered = Promise.<String>sleep(2000)
+                    .withDeadline(Deadline.after(100))
+                    .except(p -> Promise.resolve("fallback"), TimeoutException.class);
+            Promise<String> always = Promise.<String>sleep(2000)
+                    .withDeadline(Deadline.after(100))
+                    .alwaysReturn(p -> "cleaned up");
+            scheduler.advance(100);
+            assertEquals("fallback", recovered.getResult());
+            assertEquals("cleaned up", always.getResult());
+            assertTrue(recovered.then(p -> Promise.sleep(10)).getError() instanceof TimeoutException);
+            Promise<Object> continued = recovered.withDeadline(null).then(p -> Promise.sleep(10));
+            scheduler.advance(10);
+            assertTrue(continued.isSuccessful());
+        } finally {
+            Promise.setScheduler(null);
+        }
     }
 
     @Test
@@ -178,6 +356,9 @@ public class PromiseTest {
         assertTrue(p1.isCompleted());
         assertFalse(p2.isCompleted());
         assertFalse(p3.isCompleted());
+
+        Promise<Promise<String>> none = Promise.any(Collections.<Promise<String>>emptyList());
+        assertTrue(none.getError() instanceof NoSuchElementException);
     }
 
     @Test
@@ -224,6 +405,321 @@ public class PromiseTest {
         assertFalse(p3.isCompleted());
     }
 
+    @Test
+    public void testParallelAllLimited() throws InterruptedException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Supplier<Promise<Integer>>> suppliers = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final int value = i;
+            suppliers.add(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                return Promise.sleep((long) (10 * Math.random()))
+                        .thenReturn(p -> {
+                            running.decrementAndGet();
+                            return value;
+                        }, Promise.BACKGROUND_EXECUTOR);
+            });
+        }
+
+        List<Promise<Integer>> results = Promise.await(Promise.allLimited(suppliers, 3));
+        assertEquals(20, results.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Integer.valueOf(i), results.get(i).getResult());
+        }
+        assertTrue(maxRunning.get() <= 3);
+
+        // Synchronously completing promises do not grow the stack.
+        Promise<List<Promise<Integer>>> synchronous = Promise.allLimited(
+                Collections.nCopies(100000, () -> Promise.resolve(1)), 4);
+        assertTrue(synchronous.isSuccessful());
+        assertEquals(100000, synchronous.getResult().size());
+    }
+
+    @Test
+    public void testParallelAllLimitedWithError() {
+        AtomicInteger started = new AtomicInteger();
+        List<Supplier<Promise<Integer>>> suppliers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final int value = i;
+            suppliers.add(() -> {
+                started.incrementAndGet();
+                return value == 2 ? Promise.reject(new IllegalArgumentException()) : Promise.resolve(value);
+            });
+        }
+
+        Promise<List<Promise<Integer>>> promise = Promise.allLimited(suppliers, 1);
+        assertTrue(promise.isFaulted());
+        assertTrue(promise.getError() instanceof IllegalArgumentException);
+        assertEquals(3, started.get());
+    }
+
+    @Test
+    public void testParallelAnyCancelsLosers() throws InterruptedException {
+        CancellationTokenSource losers = new CancellationTokenSource();
+        Promise<String> p1 = Promise.sleep(100, losers.getToken()).thenReturn(p -> "123");
+        Promise<String> p2 = Promise.sleep(10000, losers.getToken()).thenReturn(p -> "456");
+        Promise<Promise<String>> promiseAny = Promise.any(Arrays.asList(p1, p2), losers);
+
+        assertEquals("123", Promise.await(promiseAny).getResult());
+        Promise.await(p2);
+        assertTrue(losers.isCancellationRequested());
+        assertTrue(p2.isCancelled());
+    }
+
+    @Test
+    public void testParallelAnySuccessful() throws InterruptedException {
+        CancellationTokenSource losers = new CancellationTokenSource();
+        Promise<String> p1 = Promise.sleep(50).then(p -> Promise.reject(new IllegalArgumentException()));
+        Promise<String> p2 = Promise.sleep(150, losers.getToken()).thenReturn(p -> "456");
+        Promise<String> p3 = Promise.sleep(10000, losers.getToken()).thenReturn(p -> "789");
+
+        Promise<String> winner = Promise.anySuccessful(Arrays.asList(p1, p2, p3), losers);
+        assertEquals("456", Promise.await(winner));
+        Promise.await(p3);
+        assertTrue(p1.isFaulted());
+        assertTrue(p3.isCancelled());
+
+        Promise<String> allFailed = Promise.anySuccessful(Arrays.asList(
+                Promise.reject(new IllegalArgumentException()),
+                Promise.cancelled(),
+                Promise.reject(new IllegalStateException())));
+        assertTrue(allFailed.isFaulted());
+        assertEquals(2, ((AggregateException) allFailed.getError()).getInnerThrowables().size());
+    }
+
+    @Test
+    public void testParallelInCompletionOrder() throws InterruptedException {
+        Promise<String> p1 = Promise.sleep(250).thenReturn(p -> "123");
+        Promise<String> p2 = Promise.sleep(100).thenReturn(p -> "456");
+        Promise<String> p3 = Promise.sleep(180).then(p -> Promise.reject(new IllegalArgumentException()));
+
+        List<Promise<String>> ordered = Promise.inCompletionOrder(Arrays.asList(p1, p2, p3));
+        assertEquals("456", Promise.await(ordered.get(0)));
+        Promise.await(ordered.get(1));
+        assertTrue(ordered.get(1).getError() instanceof IllegalArgumentException);
+        assertEquals("123", Promise.await(ordered.get(2)));
+    }
+
+    @Test
+    public void testParallelEach() throws InterruptedException {
+        Promise<String> p1 = Promise.sleep(250).thenReturn(p -> "123");
+        Promise<String> p2 = Promise.sleep(100).thenReturn(p -> "456");
+        Promise<String> p3 = Promise.sleep(180).then(p -> Promise.reject(new IllegalArgumentException()));
+
+        List<String> seen = Collections.synchronizedList(new ArrayList<>());
+        Promise<Void> each = Promise.each(Arrays.asList(p1, p2, p3), p -> {
+            seen.add(p.isSuccessful() ? p.getResult() : "error");
+            return null;
+        });
+
+        Promise.await(each);
+        assertTrue(each.isSuccessful());
+        assertEquals(Arrays.asList("456", "error", "123"), seen);
+
+        Promise<Void> failing = Promise.each(Arrays.asList(p1, p2), p -> {
+            throw new IllegalStateException();
+        });
+        assertTrue(failing.isFaulted());
+        assertTrue(failing.getError() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testRetrying() {
+        VirtualScheduler scheduler = new VirtualScheduler();
+        Promise.setScheduler(scheduler);
+        try {
+            RetryPolicy policy = RetryPolicy.builder()
+                    .maxAttempts(3)
+                    .initialDelayMillis(100)
+                    .jitter(false)
+                    .retryOn(IllegalStateException.class)
+                    .build();
+
+            AtomicInteger attempts = new AtomicInteger();
+            Promise<String> promise = Promise.retrying(() -> attempts.incrementAndGet() < 3
+                    ? Promise.reject(new IllegalStateException())
+                    : Promise.resolve("done"), policy);
+
+            assertEquals(1, attempts.get());
+            scheduler.advance(100);
+            assertEquals(2, attempts.get());
+            scheduler.advance(199);
+            assertEquals(2, attempts.get());
+            scheduler.advance(1);
+            assertTrue(promise.isSuccessful());
+            assertEquals("done", promise.getResult());
+
+            // Errors that are not retryable fail immediately.
+            attempts.set(0);
+            Promise<String> notRetryable = Promise.retrying(() -> {
+                attempts.incrementAndGet();
+                return Promise.reject(new IllegalArgumentException());
+            }, policy);
+            assertTrue(notRetryable.isFaulted());
+            assertEquals(1, attempts.get());
+        } finally {
+            Promise.setScheduler(null);
+        }
+    }
+
+    @Test
+    public void testRetryBudget() throws InterruptedException {
+        RetryBudget budget = RetryBudget.create(0.5, 1);
+        RetryPolicy policy = RetryPolicy.builder()
+                .maxAttempts(10)
+                .initialDelayMillis(0)
+                .budget(budget)
+                .build();
+
+        // The first caller uses up the initial retry, and deposits half a retry.
+        AtomicInteger attempts = new AtomicInteger();
+        Promise<String> promise = Promise.retrying(() -> {
+            attempts.incrementAndGet();
+            return Promise.reject(new IllegalStateException());
+        }, policy);
+        Promise.await(promise);
+        assertTrue(promise.isFaulted());
+        assertEquals(2, attempts.get());
+        assertEquals(0.5, budget.getAvailableRetries(), 0.001);
+    }
+
+    @Test
+    public void testCircuitBreakerGenerations() {
+        VirtualScheduler scheduler = new VirtualScheduler();
+        Promise.setScheduler(scheduler);
+        try {
+            CircuitBreaker breaker = new CircuitBreaker(CircuitBreakerPolicy.builder()
+                    .windowSize(2)
+                    .minimumCalls(2)
+                    .openDurationMillis(100)
+                    .halfOpenCalls(1)
+                    .build());
+
+            long stale = breaker.tryAcquire();
+            breaker.onFailure(breaker.tryAcquire(), 0);
+            breaker.onFailure(breaker.tryAcquire(), 0);
+            assertEquals(CircuitBreaker.Status.OPEN, breaker.getStatus());
+            assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+
+            scheduler.advance(100);
+            long probe = breaker.tryAcquire();
+            assertNotEquals(CircuitBreaker.REJECTED, probe);
+            assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+
+            // A call let through while closed does not count as a probe.
+            breaker.onSuccess(stale, 0);
+            assertEquals(CircuitBreaker.Status.HALF_OPEN, breaker.getStatus());
+
+            breaker.onSuccess(probe, 0);
+            assertEquals(CircuitBreaker.Status.CLOSED, breaker.getStatus());
+        } finally {
+            Promise.setScheduler(null);
+        }
+    }
+
+    @Test
+    public void testCancellationTokenRegistrations() {
+        CancellationTokenSource cts = new CancellationTokenSource();
+        AtomicInteger runs = new AtomicInteger();
+
+        // Releasing a registration while the token is cancelling neither throws nor runs its action.
+        CancellationTokens.Registration[] released = new CancellationTokens.Registration[1];
+        cts.getToken().register(() -> released[0].release());
+        released[0] = CancellationTokens.register(cts.getToken(), runs::incrementAndGet);
+        CancellationTokens.register(cts.getToken(), runs::incrementAndGet);
+        cts.cancel();
+        assertEquals(1, runs.get());
+
+        // Actions registered after cancellation run right away.
+        CancellationTokens.register(cts.getToken(), runs::incrementAndGet);
+        assertEquals(2, runs.get());
+        assertNull(CancellationTokens.register(null, runs::incrementAndGet));
+    }
+
+    @Test
+    public void testBulkheadCancellation() {
+        Bulkhead bulkhead = new Bulkhead(BulkheadPolicy.builder().maxConcurrent(1).maxQueue(1).build());
+        assertTrue(bulkhead.acquire(null).isCompleted());
+
+        // A cancelled waiter gives up its place in the queue.
+        CancellationTokenSource cts = new CancellationTokenSource();
+        Task<Void> cancelled = bulkhead.acquire(cts.getToken());
+        cts.cancel();
+        assertTrue(cancelled.isCancelled());
+
+        Task<Void> waiting = bulkhead.acquire(null);
+        assertFalse(waiting.isCompleted());
+        bulkhead.release();
+        assertTrue(waiting.isCompleted());
+        assertFalse(waiting.isFaulted());
+    }
+
+    @Test
+    public void testLimiterValidation() {
+        List<Runnable> invalid = Arrays.asList(
+                () -> new RateLimiter(RateLimitPolicy.builder().permitsPerSecond(0).build()),
+                () -> new RateLimiter(RateLimitPolicy.builder().permitsPerSecond(Double.NaN).build()),
+                () -> new RateLimiter(RateLimitPolicy.builder().permitsPerSecond(1).maxQueue(-1).build()),
+                () -> new Bulkhead(BulkheadPolicy.builder().maxConcurrent(0).build()));
+        for (Runnable limiter : invalid) {
+            try {
+                limiter.run();
+                fail();
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testBatcher() {
+        VirtualScheduler scheduler = new VirtualScheduler();
+        Promise.setScheduler(scheduler);
+        try {
+            List<List<Integer>> batches = new ArrayList<>();
+            PromiseBatcher<Integer, String> batcher = PromiseBatcher.create(keys -> {
+                batches.add(keys);
+                List<String> values = new ArrayList<>();
+                for (Integer key : keys) {
+                    if (key != 3) {
+                        values.add(String.valueOf(key));
+                    }
+                }
+                return Promise.resolve(values);
+            }, Integer::valueOf, 10, 3);
+
+            Promise<String> p1 = batcher.load(1);
+            Promise<String> p2 = batcher.load(2);
+            Promise<String> p1Again = batcher.load(1);
+            assertTrue(batches.isEmpty());
+
+            // The batch is dispatched once the window has passed.
+            scheduler.advance(10);
+            assertEquals(Collections.singletonList(Arrays.asList(1, 2)), batches);
+            assertEquals("1", p1.getResult());
+            assertEquals("2", p2.getResult());
+            assertEquals("1", p1Again.getResult());
+
+            // Or as soon as it is full.
+            Promise<String> p3 = batcher.load(3);
+            batcher.load(4);
+            batcher.load(5);
+            assertEquals(Arrays.asList(3, 4, 5), batches.get(1));
+            assertTrue(p3.isSuccessful());
+            assertNull(p3.getResult());
+            assertEquals(0, scheduler.pendingCount());
+
+            // A batch function resolving with no map fails the whole batch.
+            PromiseBatcher<Integer, String> broken = PromiseBatcher.create(keys -> Promise.resolve(null), 10, 2);
+            Promise<String> p6 = broken.load(6);
+            Promise<String> p7 = broken.load(7);
+            assertTrue(p6.getError() instanceof NullPointerException);
+            assertTrue(p7.getError() instanceof NullPointerException);
+        } finally {
+            Promise.setScheduler(null);
+        }
+    }
+
     @Test
     public void testCreatePromise() {
         TaskCompletionSource<String> tcs1 = new TaskCompletionSource<>();
@@ -246,4 +742,445 @@ public class PromiseTest {
         assertTrue(p3.isCancelled());
     }
 
+    @Test
+    public void testCompletableFutureInterop() throws Exception {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        Promise<Integer> promise = Promise.fromFuture(future);
+        assertFalse(promise.isCompleted());
+        future.complete(123);
+        assertEquals(Integer.valueOf(123), promise.getResult());
+
+        ArithmeticException error = new ArithmeticException();
+        Promise<Integer> faulted = Promise.fromFuture(CompletableFuture.<Integer>supplyAsync(() -> {
+            throw error;
+        }).thenApply(v -> v + 1));
+        Promise.await(faulted);
+        assertSame(error, faulted.getError());
+
+        CompletableFuture<Integer> pending = new CompletableFuture<>();
+        CancellationTokenSource cts = new CancellationTokenSource();
+        Promise<Integer> cancelled = Promise.fromFuture(pending, cts.getToken());
+        cts.cancel();
+        assertTrue(cancelled.isCancelled());
+        assertTrue(pending.isCancelled());
+
+        assertEquals(Integer.valueOf(1), Promise.resolve(1).toCompletableFuture().get());
+        assertTrue(Promise.cancelled().toCompletableFuture().isCancelled());
+        try {
+            Promise.reject(error).toCompletableFuture().get();
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(error, e.getCause());
+        }
+
+        CancellationTokenSource source = new CancellationTokenSource();
+        Promise<Void> sleeping = Promise.sleep(10000, source.getToken());
+        assertTrue(sleeping.toCompletableFuture(source).cancel(false));
+        assertTrue(sleeping.isCancelled());
+    }
+
+    @Test
+    public void testTimedAwait() throws Exception {
+        CancellationTokenSource cts = new CancellationTokenSource();
+        Promise<Integer> pending = Promise.sleep(10000, cts.getToken());
+        try {
+            Promise.await(pending, 10, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (TimeoutException expected) {
+        }
+        for (long timeout : new long[]{0, -1, 500}) {
+            try {
+                Promise.await(pending, timeout, TimeUnit.MICROSECONDS);
+                fail();
+            } catch (TimeoutException expected) {
+            }
+        }
+        assertEquals(Integer.valueOf(1), Promise.await(Promise.resolve(1), 0, TimeUnit.MILLISECONDS));
+
+        ArithmeticException error = new ArithmeticException();
+        assertNull(Promise.await(Promise.reject(error)));
+        try {
+            Promise.awaitOrThrow(Promise.sleep(10).then(p -> Promise.reject(error)));
+            fail();
+        } catch (ArithmeticException e) {
+            assertSame(error, e);
+        }
+
+        cts.cancel();
+        try {
+            Promise.awaitOrThrow(pending, 1, TimeUnit.SECONDS);
+            fail();
+        } catch (CancellationException expected) {
+        }
+    }
+
+    @Test
+    public void testAwaitAll() throws Exception {
+        List<Promise<?>> promises = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            promises.add(Promise.sleep(10 + i));
+        }
+        promises.add(Promise.reject(new ArithmeticException()));
+
+        Promise.awaitAll(promises, Deadline.after(1, TimeUnit.SECONDS));
+        for (Promise<?> promise : promises) {
+            assertTrue(promise.isCompleted());
+        }
+
+        CancellationTokenSource cts = new CancellationTokenSource();
+        promises.add(Promise.sleep(10000, cts.getToken()));
+        try {
+            Promise.awaitAll(promises, Deadline.after(10));
+            fail();
+        } catch (TimeoutException expected) {
+        } finally {
+            cts.cancel();
+        }
+
+        Promise.awaitAll(promises, null);
+    }
+
+    @Test
+    public void testInstrumentation() throws InterruptedException {
+        PromiseMetrics metrics = PromiseMetrics.create();
+        Promise.setInstrumentation(metrics);
+        try {
+            CancellationTokenSource cts = new CancellationTokenSource();
+            Promise<Void> pending = Promise.sleep(10000, cts.getToken());
+            Promise.reject(new ArithmeticException());
+            assertEquals(2, metrics.getCreatedCount());
+            assertEquals(1, metrics.getFaultedCount());
+            assertEquals(1, metrics.getPendingCount());
+
+            cts.cancel();
+            assertTrue(pending.isCancelled());
+            assertEquals(1, metrics.getCancelledCount());
+            assertEquals(0, metrics.getPendingCount());
+        } finally {
+            Promise.setInstrumentation(null);
+        }
+
+        InstrumentedExecutor executor = InstrumentedExecutor.of(Promise.BACKGROUND_EXECUTOR);
+        Promise.await(Promise.resolve(1).thenReturn(p -> p.getResult() + 1, executor));
+        assertEquals(1, executor.getQueueTime().getCount());
+        assertEquals(0, executor.getQueued());
+    }
+
+    @Test
+    public void testHistogram() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(500500, histogram.getMean(), 0.001);
+
+        long p50 = histogram.getValueAtPercentile(50);
+        long p99 = histogram.getValueAtPercentile(99);
+        assertTrue(Math.abs(p50 - 500000) <= 500000 / 16);
+        assertTrue(Math.abs(p99 - 990000) <= 990000 / 16);
+        assertEquals(1000000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testPagerPrefetch() {
+        List<TaskCompletionSource<Integer>> fetches = new ArrayList<>();
+        List<CancellationToken> tokens = new ArrayList<>();
+        PromisePager<Integer> pager = PromisePager.create((Integer cursor, CancellationToken ct) -> {
+            TaskCompletionSource<Integer> tcs = new TaskCompletionSource<>();
+            fetches.add(tcs);
+            tokens.add(ct);
+            return Promise.of(tcs.getTask());
+        }, page -> page < 4 ? page + 1 : null, 0, 2);
+
+        Promise<Integer> first = pager.next();
+        Promise<Integer> second = pager.next();
+        assertEquals(1, fetches.size());
+
+        // Fetches the following pages until two are buffered.
+        for (int i = 0; i < 3; i++) {
+            fetches.get(i).setResult(i);
+        }
+        assertEquals(Integer.valueOf(0), first.getResult());
+        assertEquals(Integer.valueOf(1), second.getResult());
+        assertEquals(4, fetches.size());
+
+        assertEquals(Integer.valueOf(2), pager.next().getResult());
+        assertEquals(4, fetches.size());
+
+        // Stopping early cancels the outstanding fetch.
+        pager.close();
+        assertTrue(tokens.get(3).isCancellationRequested());
+        assertTrue(pager.next().isCancelled());
+    }
+
+    @Test
+    public void testPagerForEach() throws InterruptedException {
+        List<Integer> pages = new ArrayList<>();
+        PromisePager<Integer> pager = PromisePager.create(
+                (Integer cursor, CancellationToken ct) -> cursor % 100 == 0 ? Promise.sleep(1).thenReturn(p -> cursor)
+                        : Promise.resolve(cursor),
+                page -> page < 999 ? page + 1 : null, 0, 3);
+
+        Promise<Void> done = pager.forEach(p -> {
+            pages.add(p.getResult());
+            return Promise.resolve();
+        });
+        Promise.await(done);
+        assertTrue(done.isSuccessful());
+        assertEquals(1000, pages.size());
+        for (int i = 0; i < pages.size(); i++) {
+            assertEquals(Integer.valueOf(i), pages.get(i));
+        }
+
+        ArithmeticException error = new ArithmeticException();
+        PromisePager<Integer> failing = PromisePager.create(
+                (Integer cursor, CancellationToken ct) -> cursor < 2 ? Promise.resolve(cursor) : Promise.reject(error),
+                page -> page + 1, 0, 1);
+        Promise<Void> failed = failing.forEach(p -> Promise.resolve());
+        Promise.await(failed);
+        assertSame(error, failed.getError());
+    }
+
+    @Test
+    public void testLazy() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        Promise<Integer> lazy = Promise.lazy(() -> {
+            calls.incrementAndGet();
+            return Promise.resolve(1);
+        });
+
+        assertFalse(lazy.isCompleted());
+        assertNull(lazy.getResult());
+        assertEquals(0, calls.get());
+
+        Promise<Integer> chained = lazy.thenReturn(p -> p.getResult() + 1);
+        assertEquals(1, calls.get());
+        assertEquals(Integer.valueOf(2), chained.getResult());
+
+        assertEquals(Integer.valueOf(1), Promise.await(lazy));
+        assertEquals(1, calls.get());
+
+        // Unconsumed branches never start.
+        Promise<Void> unused = Promise.lazy(() -> Promise.sleep(10000));
+        assertFalse(unused.isCompleted());
+
+        Promise<Integer> awaited = Promise.lazy(() -> Promise.sleep(10).thenReturn(p -> 3));
+        assertEquals(Integer.valueOf(3), Promise.await(awaited));
+
+        Promise<Integer> failing = Promise.lazy(() -> {
+            throw new ArithmeticException();
+        });
+        assertTrue(failing.thenReturn(p -> 0).getError() instanceof ArithmeticException);
+
+        // A lazy promise returned from an inline continuation is started, like on the asynchronous path.
+        Promise<Integer> inline = Promise.resolve(0).then(p -> Promise.lazy(() -> Promise.resolve(4)));
+        assertEquals(Integer.valueOf(4), inline.getResult());
+        Promise<Integer> prioritized = Promise.resolve(0).then(p -> Promise.resolve(5).withPriority(Priority.HIGH));
+        assertNull(prioritized.getPriority());
+    }
+
+    @Test
+    public void testMemoize() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        List<TaskCompletionSource<Integer>> sources = new ArrayList<>();
+        Supplier<Promise<Integer>> memoized = Promise.memoize(() -> {
+            calls.incrementAndGet();
+            TaskCompletionSource<Integer> tcs = new TaskCompletionSource<>();
+            sources.add(tcs);
+            return Promise.of(tcs.getTask());
+        });
+
+        // Concurrent first access shares a single call.
+        List<Task<Promise<Integer>>> callers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            callers.add(Task.call(memoized::get, Promise.BACKGROUND_EXECUTOR));
+        }
+        Promise<Integer> first = memoized.get();
+        for (Task<Promise<Integer>> caller : callers) {
+            caller.waitForCompletion();
+            assertSame(first, caller.getResult());
+        }
+        assertEquals(1, calls.get());
+
+        // Failures are forgotten.
+        sources.get(0).setError(new ArithmeticException());
+        assertTrue(first.isFaulted());
+        Promise<Integer> second = memoized.get();
+        assertEquals(2, calls.get());
+
+        sources.get(1).setResult(42);
+        assertEquals(Integer.valueOf(42), second.getResult());
+        assertSame(second, memoized.get());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testMapParallel() throws InterruptedException {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            items.add(i);
+        }
+
+        Promise<List<Long>> squares = Promise.mapParallel(items, i -> (long) i * i);
+        List<Long> result = Promise.await(squares);
+        assertEquals(items.size(), result.size());
+        for (int i = 0; i < result.size(); i++) {
+            assertEquals(Long.valueOf((long) i * i), result.get(i));
+        }
+
+        Promise<Long> sum = Promise.reduce(items, 0L, i -> (long) i, Long::sum, Promise.BACKGROUND_EXECUTOR, 3);
+        assertEquals(Long.valueOf(99999L * 100000 / 2), Promise.await(sum));
+
+        // Reduction preserves the order of the items.
+        Promise<String> joined = Promise.reduce(Arrays.asList("a", "b", "c", "d", "e"), "", s -> s, String::concat,
+                Promise.BACKGROUND_EXECUTOR, 2);
+        assertEquals("abcde", Promise.await(joined));
+
+        assertTrue(Promise.await(Promise.mapParallel(Collections.<Integer>emptyList(), i -> i)).isEmpty());
+
+        Promise<List<Integer>> failed = Promise.mapParallel(items, i -> 100 / (i - 500));
+        Promise.await(failed);
+        assertTrue(failed.getError() instanceof ArithmeticException);
+
+        AssertionError error = new AssertionError();
+        Promise<List<Integer>> errored = Promise.mapParallel(items, i -> {
+            if (i == 500) {
+                throw error;
+            }
+            return i;
+        });
+        assertNull(Promise.await(errored));
+        assertSame(error, errored.getError().getCause());
+    }
+
+    @Test
+    public void testPriorityExecutor() throws InterruptedException {
+        PriorityExecutor executor = PriorityExecutor.create(1);
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch blocked = new CountDownLatch(1);
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    blocked.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+            // Only queue the tasks once the thread is busy, so that none of them is taken early.
+            started.await();
+
+            List<Priority> order = Collections.synchronizedList(new ArrayList<>());
+            List<Promise<Void>> promises = new ArrayList<>();
+            for (int i = 0; i < 9; i++) {
+                promises.add(Promise.<Void>resolve().withPriority(Priority.LOW).thenReturn(p -> {
+                    order.add(Priority.LOW);
+                    return null;
+                }, executor));
+            }
+            for (int i = 0; i < 9; i++) {
+                Promise<Void> high = Promise.<Void>resolve().withPriority(Priority.HIGH);
+                promises.add(high.thenReturn(p -> {
+                    order.add(Priority.HIGH);
+                    return null;
+                }, executor));
+            }
+            assertEquals(9, executor.getQueueDepth(Priority.LOW));
+            assertEquals(9, executor.getQueueDepth(Priority.HIGH));
+            assertEquals(Priority.HIGH, promises.get(9).getPriority());
+
+            blocked.countDown();
+            Promise.await(Promise.all(promises));
+
+            // Weighted 8:1, but low-priority work still gets its share.
+            assertEquals(8, Collections.frequency(order.subList(0, 9), Priority.HIGH));
+            assertEquals(0, executor.getQueueDepth(Priority.LOW));
+            assertEquals(9, executor.getQueueTime(Priority.LOW).getCount());
+
+            // The only thread survives a task throwing an Error.
+            Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+            Thread.setDefaultUncaughtExceptionHandler((t, e) -> {
+            });
+            try {
+                CountDownLatch ran = new CountDownLatch(1);
+                executor.execute(() -> {
+                    throw new AssertionError();
+                });
+                executor.execute(ran::countDown);
+                assertTrue(ran.await(5, TimeUnit.SECONDS));
+            } finally {
+                Thread.setDefaultUncaughtExceptionHandler(handler);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPriorityExecutorInterrupt() throws InterruptedException {
+        PriorityExecutor executor = PriorityExecutor.create(1);
+        try {
+            // Holding the executor's monitor does not block it.
+            AtomicReference<Thread> worker = new AtomicReference<>();
+            synchronized (executor) {
+                CountDownLatch interrupted = new CountDownLatch(1);
+                executor.execute(() -> {
+                    worker.set(Thread.currentThread());
+                    Thread.currentThread().interrupt();
+                    interrupted.countDown();
+                });
+                assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+            }
+
+            // Interrupts of a task or of an idle thread do not stop the thread, nor leak into the next task.
+            Thread.sleep(50);
+            worker.get().interrupt();
+            Thread.sleep(50);
+            AtomicBoolean clean = new AtomicBoolean();
+            CountDownLatch done = new CountDownLatch(1);
+            executor.execute(() -> {
+                clean.set(!Thread.currentThread().isInterrupted());
+                done.countDown();
+            });
+            assertTrue(done.await(1, TimeUnit.SECONDS));
+            assertTrue(clean.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPriorityExecutorStarvation() throws InterruptedException {
+        // Every task is past the maximum wait, so tasks run in submission order regardless of lane.
+        PriorityExecutor executor = PriorityExecutor.create(1, 0);
+        try {
+            CountDownLatch blocked = new CountDownLatch(1);
+            executor.execute(() -> {
+                try {
+                    blocked.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+
+            List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch done = new CountDownLatch(6);
+            for (int i = 0; i < 6; i++) {
+                int index = i;
+                executor.execute(() -> {
+                    order.add(index);
+                    done.countDown();
+                }, i % 2 == 0 ? Priority.LOW : Priority.HIGH);
+            }
+
+            blocked.countDown();
+            assertTrue(done.await(1, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), order);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
 }
@@ -0,0 +1,74 @@
+package bolts;
+
+import java.util.PriorityQueue;
+
+/**
+ * A {@link PromiseScheduler} driven by a virtual clock. Time only moves forward when
+ * {@link #advance(long)} is called, which runs all the actions that became due on the calling thread.
+ */
+class VirtualScheduler implements PromiseScheduler {
+
+    private final PriorityQueue<Timer> timers = new PriorityQueue<>();
+    private long now;
+    private long sequence;
+
+    @Override
+    public synchronized long now() {
+        return now;
+    }
+
+    @Override
+    public synchronized Cancellable schedule(Runnable action, long delayMillis) {
+        Timer timer = new Timer(now + Math.max(0, delayMillis), sequence++, action);
+        timers.add(timer);
+        return () -> {
+            synchronized (VirtualScheduler.this) {
+                return timers.remove(timer);
+            }
+        };
+    }
+
+    synchronized int pendingCount() {
+        return timers.size();
+    }
+
+    void advance(long millis) {
+        long target;
+        synchronized (this) {
+            target = now + millis;
+        }
+
+        while (true) {
+            Timer timer;
+            synchronized (this) {
+                timer = timers.peek();
+                if (timer == null || timer.dueAt > target) {
+                    now = target;
+                    return;
+                }
+                timers.poll();
+                now = timer.dueAt;
+            }
+            timer.action.run();
+        }
+    }
+
+    private static final class Timer implements Comparable<Timer> {
+        private final long dueAt;
+        private final long sequence;
+        private final Runnable action;
+
+        Timer(long dueAt, long sequence, Runnable action) {
+            this.dueAt = dueAt;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(Timer other) {
+            int result = Long.compare(dueAt, other.dueAt);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+
+}